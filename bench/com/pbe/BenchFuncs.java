@@ -0,0 +1,49 @@
+package com.pbe;
+
+// Static counterparts of the lambdas used in Main
+// They exist so the benchmarks can measure the 'method reference' form of every functional interface
+// with exactly the same body as the lambda and anonymous class forms.
+class BenchFuncs {
+
+    static String upper(String str) {
+        return str.toUpperCase();
+    }
+
+    static int factorial(int n) {
+        int result = 1;
+        for (int i = 1; i <= n; i++)
+            result = i * result;
+        return result;
+    }
+
+    static Integer factorialBoxed(Integer n) {
+        int result = 1;
+        for (int i = 1; i <= n; i++)
+            result = i * result;
+        return result;
+    }
+
+    static boolean isEven(int n) {
+        return (n % 2) == 0;
+    }
+
+    static boolean isFactor(int n, int d) {
+        return (n % d) == 0;
+    }
+
+    static double avg(double[] n) throws EmptyArrayException {
+        double sum = 0;
+        if (n.length == 0)
+            throw new EmptyArrayException();
+
+        for (int i = 0; i < n.length; i++)
+            sum += n[i];
+
+        return sum / n.length;
+    }
+
+    static double constant() {
+        return 12345.678;
+    }
+
+}
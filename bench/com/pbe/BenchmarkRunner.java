@@ -0,0 +1,32 @@
+package com.pbe;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+// Entry point for the benchmarks
+// Runs all benchmarks in com.pbe (or the ones matching the first argument) with the GC profiler attached.
+// The GC profiler adds gc.alloc.rate and gc.alloc.rate.norm (bytes allocated per operation) next to the throughput.
+// Results are also written as JSON, so two runs can be compared to catch regressions.
+// Usage: java -cp <classpath> com.pbe.BenchmarkRunner [regex] [result.json]
+// or, from the project root: gradle jmh [-Pinclude=regex]
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException {
+        String include = args.length > 0 ? args[0] : "com\\.pbe\\..*";
+        String result = args.length > 1 ? args[1] : "jmh-result.json";
+
+        Options opt = new OptionsBuilder()
+                .include(include)
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result(result)
+                .build();
+
+        new Runner(opt).run();
+    }
+
+}
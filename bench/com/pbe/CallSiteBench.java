@@ -0,0 +1,85 @@
+package com.pbe;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Measures the shared call sites inside Main.stringOp() and Main.myOp() under different type profiles.
+// Every call to stringOp() ends up at the same sf.func(s) call site, no matter which lambda was passed in.
+// The JIT profiles the receiver classes seen at that site:
+// - monomorphic: only one class seen, the call is inlined
+// - bimorphic: two classes seen, inlined behind a type check
+// - megamorphic: three or more classes seen, falls back to a virtual (itable) call and no inlining
+// JMH forks a fresh JVM per benchmark method, so each method below starts with a clean profile.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CallSiteBench {
+
+    String str = "More lambda stuff";
+    Integer[] int_array = { 1, 2, 3, 4, 2, 3, 4, 4, 5 };
+    String[] str_array = { "One", "Two", "Three", "Two" };
+
+    // Each array holds 4 functions, so every benchmark does the same amount of calls
+    StringFunc[] monoStr, biStr, megaStr;
+    MyFunc<Integer>[] monoInt, biInt, megaInt;
+
+    @Setup
+    public void setup() {
+        MyStringOps myStringOpsOb = new MyStringOps();
+        StringFunc upper = (s) -> s.toUpperCase();
+        StringFunc lower = (s) -> s.toLowerCase();
+        StringFunc staticReverse = StaticMyStringOps::strReverse;
+        StringFunc boundReverse = myStringOpsOb::strReverse;
+
+        monoStr = new StringFunc[] { upper, upper, upper, upper };
+        biStr = new StringFunc[] { upper, lower, upper, lower };
+        megaStr = new StringFunc[] { upper, lower, staticReverse, boundReverse };
+
+        MyFunc<Integer> ref = MyArrayOps::countMatching;
+        MyFunc<Integer> lambda = (vals, v) -> {
+            int count = 0;
+            for (Integer val : vals)
+                if (val.equals(v)) count++;
+            return count;
+        };
+        MyFunc<Integer> first = (vals, v) -> vals.length > 0 && vals[0].equals(v) ? 1 : 0;
+        MyFunc<Integer> length = (vals, v) -> vals.length;
+
+        monoInt = funcs(ref, ref, ref, ref);
+        biInt = funcs(ref, lambda, ref, lambda);
+        megaInt = funcs(ref, lambda, first, length);
+    }
+
+    // A generic array can't be created with new MyFunc<Integer>[], so a wildcard array is cast instead
+    @SuppressWarnings("unchecked")
+    private static MyFunc<Integer>[] funcs(MyFunc<Integer> a, MyFunc<Integer> b, MyFunc<Integer> c, MyFunc<Integer> d) {
+        return (MyFunc<Integer>[]) new MyFunc<?>[] { a, b, c, d };
+    }
+
+    private int stringOps(StringFunc[] funcs) {
+        int len = 0;
+        for (StringFunc sf : funcs)
+            len += Main.stringOp(sf, str).length();
+        return len;
+    }
+
+    private int myOps(MyFunc<Integer>[] funcs) {
+        int count = 0;
+        for (MyFunc<Integer> f : funcs)
+            count += Main.myOp(f, int_array, 4);
+        return count;
+    }
+
+    @Benchmark public int stringOpMonomorphic() { return stringOps(monoStr); }
+    @Benchmark public int stringOpBimorphic() { return stringOps(biStr); }
+    @Benchmark public int stringOpMegamorphic() { return stringOps(megaStr); }
+
+    @Benchmark public int myOpMonomorphic() { return myOps(monoInt); }
+    @Benchmark public int myOpBimorphic() { return myOps(biInt); }
+    @Benchmark public int myOpMegamorphic() { return myOps(megaInt); }
+
+}
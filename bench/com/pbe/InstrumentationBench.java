@@ -0,0 +1,64 @@
+package com.pbe;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Overhead of the Instrumentation wrappers
+// - direct: the plain function
+// - wrapped: a wrapper created while instrumentation was on, called with instrumentation on or off (the 'enabled' param)
+// With enabled=false this shows the cost of a disabled wrapper; it should be close to 'direct'.
+// A function wrapped while instrumentation is off is the function itself, so that case is 'direct' by definition.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InstrumentationBench {
+
+    @Param({"false", "true"})
+    boolean enabled;
+
+    NumFunc direct;
+    NumFunc wrapped;
+    MyNumTest directTest;
+    MyNumTest wrappedTest;
+    int n = 7;
+
+    @Setup
+    public void setup() {
+        direct = (v) -> v * 31 + 7;
+        directTest = (v) -> (v % 2) == 0;
+        Instrumentation.setEnabled(true);
+        wrapped = Instrumentation.numFunc("bench.numFunc", direct);
+        wrappedTest = Instrumentation.myNumTest("bench.myNumTest", directTest);
+        Instrumentation.setEnabled(enabled);
+    }
+
+    @TearDown
+    public void tearDown() {
+        Instrumentation.setEnabled(false);
+    }
+
+    @Benchmark
+    public int numFuncDirect() {
+        return direct.func(n);
+    }
+
+    @Benchmark
+    public int numFuncWrapped() {
+        return wrapped.func(n);
+    }
+
+    @Benchmark
+    public boolean myNumTestDirect() {
+        return directTest.test(n);
+    }
+
+    @Benchmark
+    public boolean myNumTestWrapped() {
+        return wrappedTest.test(n);
+    }
+
+}
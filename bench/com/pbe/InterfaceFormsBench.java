@@ -0,0 +1,202 @@
+package com.pbe;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Measures every functional interface of com.pbe in its three forms:
+// - a lambda expression (as written in Main)
+// - a method reference (static, bound instance, or generic)
+// - an anonymous class
+// Each implementation is stored in a field typed to the interface, so the call goes through the interface
+// exactly like it does in Main. Run through BenchmarkRunner to get the GC profiler (allocation rate) as well.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InterfaceFormsBench {
+
+    // Input sizes, kept small so that the call overhead is visible next to the work itself
+    @Param({"16"})
+    int size;
+
+    String str;
+    double[] doubles;
+    Integer[] ints;
+    Integer match;
+    int n;
+
+    MyNum myNumLambda, myNumRef, myNumAnon;
+    StringFunc stringLambda, stringStaticRef, stringBoundRef, stringAnon;
+    NumFunc numLambda, numRef, numAnon;
+    SomeFunc<Integer> someLambda, someRef, someAnon;
+    MyNumTest testLambda, testRef, testAnon;
+    MyNumTest2 test2Lambda, test2Ref, test2Anon;
+    MyFunc<Integer> myFuncLambda, myFuncRef, myFuncAnon;
+    DblNumericArrayFunc dblLambda, dblRef, dblAnon;
+
+    @Setup
+    public void setup() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < size; i++)
+            sb.append((char) ('a' + i % 26));
+        str = sb.toString();
+
+        doubles = new double[size];
+        ints = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            doubles[i] = i * 1.1;
+            ints[i] = i % 5;
+        }
+        match = 4;
+        n = 8;
+
+        // MyNum
+        myNumLambda = () -> 12345.678;
+        myNumRef = BenchFuncs::constant;
+        myNumAnon = new MyNum() {
+            public double getValue() {
+                return 12345.678;
+            }
+        };
+
+        // StringFunc
+        // All four forms reverse with StringReverser, which StaticMyStringOps and MyStringOps delegate to,
+        // so they differ only in the form of the function object
+        stringLambda = (s) -> StringReverser.strReverse(s);
+        stringStaticRef = StaticMyStringOps::strReverse;
+        MyStringOps myStringOpsOb = new MyStringOps();
+        stringBoundRef = myStringOpsOb::strReverse;
+        stringAnon = new StringFunc() {
+            public String func(String s) {
+                return StringReverser.strReverse(s);
+            }
+        };
+
+        // NumFunc
+        numLambda = (v) -> {
+            int result = 1;
+            for (int i = 1; i <= v; i++)
+                result = i * result;
+            return result;
+        };
+        numRef = BenchFuncs::factorial;
+        numAnon = new NumFunc() {
+            public int func(int v) {
+                int result = 1;
+                for (int i = 1; i <= v; i++)
+                    result = i * result;
+                return result;
+            }
+        };
+
+        // SomeFunc<Integer>
+        someLambda = (v) -> {
+            int result = 1;
+            for (int i = 1; i <= v; i++)
+                result = i * result;
+            return result;
+        };
+        someRef = BenchFuncs::factorialBoxed;
+        someAnon = new SomeFunc<Integer>() {
+            public Integer func(Integer v) {
+                int result = 1;
+                for (int i = 1; i <= v; i++)
+                    result = i * result;
+                return result;
+            }
+        };
+
+        // MyNumTest
+        testLambda = (v) -> (v % 2) == 0;
+        testRef = BenchFuncs::isEven;
+        testAnon = new MyNumTest() {
+            public boolean test(int v) {
+                return (v % 2) == 0;
+            }
+        };
+
+        // MyNumTest2
+        test2Lambda = (v, d) -> (v % d) == 0;
+        test2Ref = BenchFuncs::isFactor;
+        test2Anon = new MyNumTest2() {
+            public boolean test(int v, int d) {
+                return (v % d) == 0;
+            }
+        };
+
+        // MyFunc<Integer>
+        myFuncLambda = (vals, v) -> {
+            int count = 0;
+            for (int i = 0; i < vals.length; i++)
+                if (vals[i] == v) count++;
+            return count;
+        };
+        myFuncRef = MyArrayOps::countMatching;
+        myFuncAnon = new MyFunc<Integer>() {
+            public int func(Integer[] vals, Integer v) {
+                int count = 0;
+                for (int i = 0; i < vals.length; i++)
+                    if (vals[i] == v) count++;
+                return count;
+            }
+        };
+
+        // DblNumericArrayFunc
+        dblLambda = (a) -> {
+            double sum = 0;
+            if (a.length == 0)
+                throw new EmptyArrayException();
+            for (int i = 0; i < a.length; i++)
+                sum += a[i];
+            return sum / a.length;
+        };
+        dblRef = BenchFuncs::avg;
+        dblAnon = new DblNumericArrayFunc() {
+            public double func(double[] a) throws EmptyArrayException {
+                double sum = 0;
+                if (a.length == 0)
+                    throw new EmptyArrayException();
+                for (int i = 0; i < a.length; i++)
+                    sum += a[i];
+                return sum / a.length;
+            }
+        };
+    }
+
+    @Benchmark public double myNumLambda() { return myNumLambda.getValue(); }
+    @Benchmark public double myNumRef() { return myNumRef.getValue(); }
+    @Benchmark public double myNumAnon() { return myNumAnon.getValue(); }
+
+    @Benchmark public String stringFuncLambda() { return stringLambda.func(str); }
+    @Benchmark public String stringFuncStaticRef() { return stringStaticRef.func(str); }
+    @Benchmark public String stringFuncBoundRef() { return stringBoundRef.func(str); }
+    @Benchmark public String stringFuncAnon() { return stringAnon.func(str); }
+
+    @Benchmark public int numFuncLambda() { return numLambda.func(n); }
+    @Benchmark public int numFuncRef() { return numRef.func(n); }
+    @Benchmark public int numFuncAnon() { return numAnon.func(n); }
+
+    @Benchmark public Integer someFuncLambda() { return someLambda.func(n); }
+    @Benchmark public Integer someFuncRef() { return someRef.func(n); }
+    @Benchmark public Integer someFuncAnon() { return someAnon.func(n); }
+
+    @Benchmark public boolean myNumTestLambda() { return testLambda.test(n); }
+    @Benchmark public boolean myNumTestRef() { return testRef.test(n); }
+    @Benchmark public boolean myNumTestAnon() { return testAnon.test(n); }
+
+    @Benchmark public boolean myNumTest2Lambda() { return test2Lambda.test(n, 2); }
+    @Benchmark public boolean myNumTest2Ref() { return test2Ref.test(n, 2); }
+    @Benchmark public boolean myNumTest2Anon() { return test2Anon.test(n, 2); }
+
+    @Benchmark public int myFuncLambda() { return myFuncLambda.func(ints, match); }
+    @Benchmark public int myFuncRef() { return myFuncRef.func(ints, match); }
+    @Benchmark public int myFuncAnon() { return myFuncAnon.func(ints, match); }
+
+    @Benchmark public double dblNumericArrayFuncLambda() throws EmptyArrayException { return dblLambda.func(doubles); }
+    @Benchmark public double dblNumericArrayFuncRef() throws EmptyArrayException { return dblRef.func(doubles); }
+    @Benchmark public double dblNumericArrayFuncAnon() throws EmptyArrayException { return dblAnon.func(doubles); }
+
+}
@@ -0,0 +1,13 @@
+package com.pbe;
+
+// A short job written the way Main does it: with method references, linked through LambdaMetafactory at run time
+// Used by StartupBench; RegistryJob does exactly the same through FunctionRegistry.
+public class LambdaJob {
+
+    public static void main(String[] args) {
+        Integer[] int_array = { 1, 2, 3, 4, 2, 3, 4, 4, 5 };
+        System.out.println(Main.stringOp(StaticMyStringOps::strReverse, "More lambda stuff"));
+        System.out.println(Main.myOp(MyArrayOps::<Integer>countMatching, int_array, 4));
+    }
+
+}
@@ -0,0 +1,40 @@
+package com.pbe;
+
+// Check of OffHeapDoubles.wrap() and OffHeapReducer on an array longer than one chunk (CHUNK + 10 doubles, ~1GB)
+// Every element is set to its index mod 1000, so every value and the exact sum are known.
+// Exits with status 1 on the first wrong result.
+// Usage: java -Xmx2g -cp <classpath> com.pbe.OffHeapChunkCheck  (or: gradle offHeapCheck)
+public class OffHeapChunkCheck {
+
+    public static void main(String[] args) throws EmptyArrayException {
+        int length = OffHeapDoubles.CHUNK + 10;
+        double[] d = new double[length];
+        for (int i = 0; i < length; i++)
+            d[i] = i % 1000;
+
+        OffHeapDoubles w = OffHeapDoubles.wrap(d);
+        check("chunkCount", w.chunkCount(), 2);
+        check("get(CHUNK - 1)", w.get(OffHeapDoubles.CHUNK - 1), (OffHeapDoubles.CHUNK - 1) % 1000);
+        check("get(CHUNK)", w.get(OffHeapDoubles.CHUNK), OffHeapDoubles.CHUNK % 1000);
+        check("get(length - 1)", w.get(length - 1), (length - 1) % 1000);
+        w.set(length - 1, -1);
+        check("set(length - 1) writes through to the array", d[length - 1], -1);
+        d[length - 1] = (length - 1) % 1000;
+
+        // Sum of i % 1000 over [0, length): full runs of 0..999 plus the partial run at the end
+        long runs = length / 1000;
+        long rest = length % 1000;
+        double expected = runs * (999 * 1000 / 2) + rest * (rest - 1) / 2;
+        check("sum", new OffHeapReducer().sum(w), expected);
+        check("mean of onArrays()", new OffHeapReducer().onArrays().func(d), expected / length);
+        System.out.println("OffHeapChunkCheck: OK");
+    }
+
+    private static void check(String what, double actual, double expected) {
+        if (actual != expected) {
+            System.out.println("OffHeapChunkCheck: " + what + " is " + actual + ", expected " + expected);
+            System.exit(1);
+        }
+    }
+
+}
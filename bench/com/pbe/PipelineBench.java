@@ -0,0 +1,102 @@
+package com.pbe;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Compares chained stringOp() calls with a fused StringPipeline, for pipelines of 3 and 5 stages
+// The chained versions create one intermediate String per stage; the fused versions create one buffer and one result.
+// Compare gc.alloc.rate.norm (bytes per operation) next to the average time.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PipelineBench {
+
+    @Param({"64", "4096"})
+    int size;
+
+    String str;
+
+    StringFunc upper, removeSpaces, reverse, trim, removeDigits;
+    StringFunc fused3, fused5, fused5Lambdas;
+
+    @Setup
+    public void setup() {
+        StringBuilder sb = new StringBuilder("  ");
+        for (int i = 0; i < size; i++)
+            sb.append(i % 7 == 0 ? ' ' : i % 11 == 0 ? '7' : (char) ('a' + i % 26));
+        str = sb.append("  ").toString();
+
+        upper = (s) -> s.toUpperCase();
+        removeSpaces = (s) -> s.replace(" ", "");
+        reverse = StaticMyStringOps::strReverse;
+        trim = String::trim;
+        // A char loop rather than replaceAll("[0-9]", ""), which would compile a regex on every call
+        // and make the comparison with the fused filter about Pattern.compile instead of fusion
+        removeDigits = (s) -> {
+            StringBuilder out = new StringBuilder(s.length());
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                if (c < '0' || c > '9')
+                    out.append(c);
+            }
+            return out.toString();
+        };
+
+        fused3 = new StringPipeline()
+                .upperCase()
+                .remove(' ')
+                .reverse()
+                .build();
+        fused5 = new StringPipeline()
+                .trim()
+                .upperCase()
+                .remove(' ')
+                .removeRange('0', '9')
+                .reverse()
+                .build();
+        // The same pipeline with general map and filter stages: one interface call per char and stage
+        fused5Lambdas = new StringPipeline()
+                .trim()
+                .map(Character::toUpperCase)
+                .filter(c -> c != ' ')
+                .filter(c -> c < '0' || c > '9')
+                .reverse()
+                .build();
+    }
+
+    @Benchmark
+    public String chained3() {
+        String s = Main.stringOp(upper, str);
+        s = Main.stringOp(removeSpaces, s);
+        return Main.stringOp(reverse, s);
+    }
+
+    @Benchmark
+    public String fused3() {
+        return Main.stringOp(fused3, str);
+    }
+
+    @Benchmark
+    public String chained5() {
+        String s = Main.stringOp(trim, str);
+        s = Main.stringOp(upper, s);
+        s = Main.stringOp(removeSpaces, s);
+        s = Main.stringOp(removeDigits, s);
+        return Main.stringOp(reverse, s);
+    }
+
+    @Benchmark
+    public String fused5() {
+        return Main.stringOp(fused5, str);
+    }
+
+    @Benchmark
+    public String fused5Lambdas() {
+        return Main.stringOp(fused5Lambdas, str);
+    }
+
+}
@@ -0,0 +1,66 @@
+package com.pbe;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+// Scalar against Vector API kernels of PredicateBatch, for isPositive (a range) and isEven (modulo 2)
+// Each benchmark evaluates a predicate over 4M ints; divide the time by 4M for the cost per value.
+// PredicateBatch picks its kernels once, when it is loaded, so the two variants run in differently configured forks:
+// the *Vector methods add the jdk.incubator.vector module, the *Scalar methods turn the Vector API off.
+// The per call loop over test() is the baseline both are meant to beat.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PredicateBatchBench {
+
+    int[] values = new int[1 << 22];
+    MyNumTest isPositive = PredicateBatch.atLeast(0);
+    MyNumTest isEven = PredicateBatch.moduloEquals(2, 0);
+    MyNumTest isPositiveLambda = (n) -> n >= 0;
+
+    @Setup
+    public void setup() {
+        SplittableRandom random = new SplittableRandom(1);
+        for (int i = 0; i < values.length; i++)
+            values[i] = random.nextInt(-1000, 1000);
+    }
+
+    @Benchmark
+    public int perCallLoop() {
+        int count = 0;
+        for (int v : values)
+            if (isPositiveLambda.test(v))
+                count++;
+        return count;
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "-Dcom.pbe.vector=false")
+    public BitMask rangeScalar() {
+        return PredicateBatch.evaluate(isPositive, values);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = { "--add-modules", "jdk.incubator.vector" })
+    public BitMask rangeVector() {
+        return PredicateBatch.evaluate(isPositive, values);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "-Dcom.pbe.vector=false")
+    public BitMask evenScalar() {
+        return PredicateBatch.evaluate(isEven, values);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = { "--add-modules", "jdk.incubator.vector" })
+    public BitMask evenVector() {
+        return PredicateBatch.evaluate(isEven, values);
+    }
+
+}
@@ -0,0 +1,67 @@
+package com.pbe;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// Allocation of SomeFunc<Integer> against its int specialization IntSomeFunc
+// Both apply the factorial2 block lambda from Main to an array of arguments.
+// With the GC profiler (see BenchmarkRunner), gc.alloc.rate.norm shows the bytes per operation:
+// the boxed versions allocate an Integer for most results, the IntSomeFunc versions 0 bytes.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PrimitiveSomeFuncBench {
+
+    int[] in = new int[1024];
+    int[] out = new int[1024];
+    Integer[] boxedIn = new Integer[1024];
+    Integer[] boxedOut = new Integer[1024];
+
+    SomeFunc<Integer> factorial2;
+    IntSomeFunc intFactorial;
+
+    @Setup
+    public void setup() {
+        for (int i = 0; i < in.length; i++) {
+            in[i] = i % 13;
+            boxedIn[i] = in[i];
+        }
+        factorial2 = (n) -> {
+            int result = 1;
+            for (int i = 1; i <= n; i++)
+                result = i * result;
+            return result;
+        };
+        intFactorial = (n) -> {
+            int result = 1;
+            for (int i = 1; i <= n; i++)
+                result = i * result;
+            return result;
+        };
+    }
+
+    @Benchmark
+    public Integer[] boxedLoop() {
+        for (int i = 0; i < boxedIn.length; i++)
+            boxedOut[i] = factorial2.func(boxedIn[i]);
+        return boxedOut;
+    }
+
+    @Benchmark
+    public int[] specializedLoop() {
+        for (int i = 0; i < in.length; i++)
+            out[i] = intFactorial.func(in[i]);
+        return out;
+    }
+
+    @Benchmark
+    public int[] specializedBulk() {
+        intFactorial.apply(in, out);
+        return out;
+    }
+
+}
@@ -0,0 +1,12 @@
+package com.pbe;
+
+// The job of LambdaJob, using the pre-built implementations of FunctionRegistry (no lambda bootstrap)
+public class RegistryJob {
+
+    public static void main(String[] args) {
+        Integer[] int_array = { 1, 2, 3, 4, 2, 3, 4, 4, 5 };
+        System.out.println(Main.stringOp(FunctionRegistry.stringFunc("strReverse"), "More lambda stuff"));
+        System.out.println(Main.myOp(FunctionRegistry.<Integer>myFunc("countMatching"), int_array, 4));
+    }
+
+}
@@ -0,0 +1,90 @@
+package com.pbe;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Startup benchmark: time to first result of a fresh JVM, for
+// - Main: the full study program
+// - LambdaJob: a short job using method references (LambdaMetafactory bootstrap at run time)
+// - RegistryJob: the same job using FunctionRegistry (no bootstrap)
+// Each variant is started 'runs' times as a new java process with the current class path.
+// Reported are the median and minimum of the time until the first line of output, and until the process ended.
+// JMH is not used here: its own harness would dominate a measurement of JVM startup.
+//
+// Usage: java -cp pbe.jar com.pbe.StartupBench [runs] [archive.jsa]
+//
+// AppCDS recipe (JDK 13+ dynamic archive), to also take class loading and linking out of startup:
+// 1. Put the classes in a jar; CDS does not archive classes loaded from (non empty) directories
+//    jar cf pbe.jar -C <classes> . -C <benchmark classes> .
+//    (gradle jmhJar builds such a jar as build/libs/pbe-jmh.jar)
+// 2. Create the archive with a training run; all classes the job loads are dumped when the JVM exits
+//    java -XX:ArchiveClassesAtExit=pbe.jsa -cp pbe.jar com.pbe.RegistryJob
+// 3. Start jobs with the archive
+//    java -XX:SharedArchiveFile=pbe.jsa -cp pbe.jar com.pbe.RegistryJob
+// The class path at run time must match (or extend) the one used to create the archive.
+// Passing the archive as second argument runs every variant with -XX:SharedArchiveFile as well.
+// Note that a dynamic archive also stores the classes LambdaMetafactory generated during the training run,
+// so with an archive the difference between LambdaJob and RegistryJob gets smaller.
+public class StartupBench {
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int runs = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        String archive = args.length > 1 ? args[1] : null;
+
+        String[] mains = { "com.pbe.Main", "com.pbe.LambdaJob", "com.pbe.RegistryJob" };
+        for (String main : mains) {
+            measure(main, runs, null);
+            if (archive != null)
+                measure(main, runs, archive);
+        }
+    }
+
+    private static void measure(String main, int runs, String archive) throws IOException, InterruptedException {
+        long[] first = new long[runs];
+        long[] total = new long[runs];
+        run(main, archive); // warm up the file system cache
+        for (int i = 0; i < runs; i++) {
+            long[] t = run(main, archive);
+            first[i] = t[0];
+            total[i] = t[1];
+        }
+        Arrays.sort(first);
+        Arrays.sort(total);
+        System.out.printf("%-22s %-8s first result: median %6.1f ms, min %6.1f ms | exit: median %6.1f ms, min %6.1f ms%n",
+                main.substring(main.lastIndexOf('.') + 1), archive == null ? "" : "(AppCDS)",
+                first[runs / 2] / 1e6, first[0] / 1e6, total[runs / 2] / 1e6, total[0] / 1e6);
+    }
+
+    // Returns {nanos until the first output line, nanos until exit}
+    private static long[] run(String main, String archive) throws IOException, InterruptedException {
+        List<String> cmd = new ArrayList<>();
+        cmd.add(System.getProperty("java.home") + "/bin/java");
+        if (archive != null)
+            cmd.add("-XX:SharedArchiveFile=" + archive);
+        cmd.add("-cp");
+        cmd.add(System.getProperty("java.class.path"));
+        cmd.add(main);
+
+        long start = System.nanoTime();
+        Process p = new ProcessBuilder(cmd).redirectErrorStream(true).start();
+        long firstLine;
+        try (BufferedReader out = new BufferedReader(new InputStreamReader(p.getInputStream(), StandardCharsets.UTF_8))) {
+            out.readLine();
+            firstLine = System.nanoTime() - start;
+            while (out.readLine() != null) {
+                // drain the rest of the output
+            }
+        }
+        int exit = p.waitFor();
+        long end = System.nanoTime() - start;
+        if (exit != 0)
+            throw new IllegalStateException(main + " exited with " + exit);
+        return new long[] { firstLine, end };
+    }
+
+}
@@ -0,0 +1,277 @@
+package com.pbe;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Runs batches of independent jobs, such as myOp() and stringOp() calls, concurrently
+// Every job carries a hint that decides where it runs:
+// - BLOCKING jobs (functions that wait on I/O) run on virtual threads, one per job.
+//   A waiting virtual thread does not hold on to an OS thread, so thousands of them are cheap.
+//   The number of BLOCKING jobs running at the same time can be limited, for example to protect a backend.
+// - CPU jobs run on a ForkJoin pool of platform threads, sized to the number of cores.
+//   Running more CPU bound jobs than there are cores would not make them finish any sooner.
+//
+// A batch has a deadline. Jobs that have not finished by then are cancelled (interrupted when running),
+// whether or not anyone is waiting for the results: submit() starts a timer for the deadline,
+// which is cancelled again as soon as all jobs of the batch are done.
+// Results can be taken in submission order (awaitAll) or in the order the jobs complete (next).
+//
+// Example:
+// List<BatchDispatcher.Job<String>> jobs = List.of(
+//         BatchDispatcher.Job.stringOp(StaticMyStringOps::strReverse, "abc", BatchDispatcher.Hint.CPU),
+//         BatchDispatcher.Job.stringOp(s -> fetch(s), "key", BatchDispatcher.Hint.BLOCKING));
+// List<BatchDispatcher.Result<String>> results = dispatcher.invokeAll(jobs, Duration.ofSeconds(2));
+public class BatchDispatcher implements AutoCloseable {
+
+    public enum Hint { BLOCKING, CPU }
+
+    // A function together with its input
+    public static final class Job<R> {
+        final Callable<R> work;
+        final Hint hint;
+
+        public Job(Callable<R> work, Hint hint) {
+            if (work == null || hint == null)
+                throw new IllegalArgumentException("work and hint must not be null");
+            this.work = work;
+            this.hint = hint;
+        }
+
+        public static Job<String> stringOp(StringFunc sf, String s, Hint hint) {
+            return new Job<>(() -> Main.stringOp(sf, s), hint);
+        }
+
+        public static <T> Job<Integer> myOp(MyFunc<T> f, T[] vals, T v, Hint hint) {
+            return new Job<>(() -> Main.myOp(f, vals, v), hint);
+        }
+    }
+
+    // Outcome of one job: a value, an exception, or cancelled (because of the deadline or cancel())
+    public static final class Result<R> {
+        public final int index;
+        private final R value;
+        private final Throwable error;
+        private final boolean cancelled;
+
+        Result(int index, R value, Throwable error, boolean cancelled) {
+            this.index = index;
+            this.value = value;
+            this.error = error;
+            this.cancelled = cancelled;
+        }
+
+        public boolean isSuccess() {
+            return error == null && !cancelled;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        public Throwable error() {
+            return error;
+        }
+
+        // The value, or an exception when the job failed or was cancelled
+        public R get() throws ExecutionException {
+            if (cancelled)
+                throw new CancellationException("job " + index + " was cancelled");
+            if (error != null)
+                throw new ExecutionException(error);
+            return value;
+        }
+
+        @Override
+        public String toString() {
+            return "Result[" + index + ", " + (cancelled ? "cancelled" : error != null ? "failed: " + error : value) + "]";
+        }
+    }
+
+    // A submitted batch
+    public static final class Batch<R> {
+        private final List<FutureTask<R>> tasks = new ArrayList<>();
+        private final BlockingQueue<Result<R>> completed = new LinkedBlockingQueue<>();
+        private final long deadline; // System.nanoTime() based
+        private final AtomicInteger pending = new AtomicInteger();
+        private volatile ScheduledFuture<?> deadlineTimer;
+        private int delivered;
+
+        Batch(long deadline) {
+            this.deadline = deadline;
+        }
+
+        // Called by every task when it is done (completed, failed or cancelled)
+        void taskDone(int index, FutureTask<R> task) {
+            completed.add(resultOf(index, task));
+            if (pending.decrementAndGet() == 0) {
+                ScheduledFuture<?> timer = deadlineTimer;
+                if (timer != null)
+                    timer.cancel(false);
+            }
+        }
+
+        public int size() {
+            return tasks.size();
+        }
+
+        // Wait for all jobs (or the deadline) and return the results in submission order
+        public List<Result<R>> awaitAll() throws InterruptedException {
+            for (FutureTask<R> t : tasks) {
+                long remaining = deadline - System.nanoTime();
+                try {
+                    if (remaining <= 0)
+                        throw new TimeoutException();
+                    t.get(remaining, TimeUnit.NANOSECONDS);
+                } catch (TimeoutException e) {
+                    cancel();
+                    break;
+                } catch (ExecutionException | CancellationException e) {
+                    // recorded in the result below
+                }
+            }
+            List<Result<R>> results = new ArrayList<>(tasks.size());
+            for (int i = 0; i < tasks.size(); i++)
+                results.add(resultOf(i, tasks.get(i)));
+            return results;
+        }
+
+        // The next job to complete, waiting until the deadline; null when all results have been delivered
+        // Once the deadline has passed, the remaining jobs are cancelled and returned as cancelled results.
+        public Result<R> next() throws InterruptedException {
+            if (delivered == tasks.size())
+                return null;
+            long remaining = deadline - System.nanoTime();
+            Result<R> r = remaining > 0 ? completed.poll(remaining, TimeUnit.NANOSECONDS) : completed.poll();
+            if (r == null) {
+                cancel();
+                r = completed.take(); // a cancelled task reports itself right away
+            }
+            delivered++;
+            return r;
+        }
+
+        public void cancel() {
+            for (FutureTask<R> t : tasks)
+                t.cancel(true);
+        }
+
+        static <R> Result<R> resultOf(int index, FutureTask<R> t) {
+            if (t.isCancelled())
+                return new Result<>(index, null, null, true);
+            try {
+                return new Result<>(index, t.get(), null, false);
+            } catch (ExecutionException e) {
+                return new Result<>(index, null, e.getCause(), false);
+            } catch (InterruptedException | CancellationException e) {
+                return new Result<>(index, null, null, true);
+            }
+        }
+    }
+
+    private final ExecutorService virtualThreads = Executors.newVirtualThreadPerTaskExecutor();
+    // Cancels batches at their deadline; one daemon thread, and cancelled timers are removed right away
+    private final ScheduledThreadPoolExecutor deadlines;
+    private final ForkJoinPool cpuPool;
+    private final boolean ownsCpuPool;
+    private final Semaphore blockingPermits; // null: unbounded
+
+    // Unbounded BLOCKING concurrency, CPU jobs on a new pool with one thread per core
+    public BatchDispatcher() {
+        this(0);
+    }
+
+    // At most maxBlockingConcurrency BLOCKING jobs run at a time (0 for no limit)
+    public BatchDispatcher(int maxBlockingConcurrency) {
+        this(maxBlockingConcurrency, new ForkJoinPool(Runtime.getRuntime().availableProcessors()), true);
+    }
+
+    public BatchDispatcher(int maxBlockingConcurrency, ForkJoinPool cpuPool) {
+        this(maxBlockingConcurrency, cpuPool, false);
+    }
+
+    private BatchDispatcher(int maxBlockingConcurrency, ForkJoinPool cpuPool, boolean ownsCpuPool) {
+        if (maxBlockingConcurrency < 0)
+            throw new IllegalArgumentException("maxBlockingConcurrency must not be negative: " + maxBlockingConcurrency);
+        this.blockingPermits = maxBlockingConcurrency == 0 ? null : new Semaphore(maxBlockingConcurrency);
+        this.cpuPool = cpuPool;
+        this.ownsCpuPool = ownsCpuPool;
+        this.deadlines = new ScheduledThreadPoolExecutor(1, r -> {
+            Thread t = new Thread(r, "BatchDispatcher-deadlines");
+            t.setDaemon(true);
+            return t;
+        });
+        deadlines.setRemoveOnCancelPolicy(true);
+    }
+
+    // Start all jobs of a batch; the deadline counts from now
+    public <R> Batch<R> submit(List<Job<R>> jobs, Duration timeout) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        Batch<R> batch = new Batch<>(deadline);
+        List<FutureTask<R>> tasks = batch.tasks;
+        for (int i = 0; i < jobs.size(); i++) {
+            Job<R> job = jobs.get(i);
+            int index = i;
+            Callable<R> work = job.hint == Hint.BLOCKING && blockingPermits != null ? limited(job.work) : job.work;
+            FutureTask<R> task = new FutureTask<R>(work) {
+                @Override
+                protected void done() {
+                    batch.taskDone(index, this);
+                }
+            };
+            tasks.add(task);
+        }
+        if (tasks.isEmpty())
+            return batch;
+        // The timer is in place before any task can finish, so the last task to finish always cancels it
+        batch.pending.set(tasks.size());
+        batch.deadlineTimer = deadlines.schedule(batch::cancel, Math.max(0, timeout.toNanos()), TimeUnit.NANOSECONDS);
+        for (int i = 0; i < tasks.size(); i++) {
+            if (jobs.get(i).hint == Hint.BLOCKING)
+                virtualThreads.execute(tasks.get(i));
+            else
+                cpuPool.execute(tasks.get(i));
+        }
+        return batch;
+    }
+
+    // Run a batch and wait for the results, in submission order
+    public <R> List<Result<R>> invokeAll(List<Job<R>> jobs, Duration timeout) throws InterruptedException {
+        return submit(jobs, timeout).awaitAll();
+    }
+
+    private <R> Callable<R> limited(Callable<R> work) {
+        return () -> {
+            blockingPermits.acquire();
+            try {
+                return work.call();
+            } finally {
+                blockingPermits.release();
+            }
+        };
+    }
+
+    @Override
+    public void close() {
+        deadlines.shutdownNow();
+        virtualThreads.shutdownNow();
+        if (ownsCpuPool)
+            cpuPool.shutdownNow();
+    }
+
+}
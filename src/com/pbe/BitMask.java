@@ -0,0 +1,157 @@
+package com.pbe;
+
+import java.util.Arrays;
+
+// Compact result of evaluating a predicate over an array: one bit per element, 64 elements per long
+// Bit i is set when the predicate was true for element i.
+// Besides single bit access it offers population counts and compaction helpers,
+// so filtering downstream works on int[] directly, without boxing and without calling the predicate again.
+public class BitMask {
+
+    private final long[] words;
+    private final int size;
+
+    BitMask(int size) {
+        this(new long[wordCount(size)], size);
+    }
+
+    BitMask(long[] words, int size) {
+        this.words = words;
+        this.size = size;
+    }
+
+    static int wordCount(int size) {
+        return (size + 63) >>> 6;
+    }
+
+    // Number of elements covered by the mask (not the number of set bits)
+    public int size() {
+        return size;
+    }
+
+    public boolean get(int i) {
+        if (i < 0 || i >= size)
+            throw new IndexOutOfBoundsException("index " + i + " out of range [0, " + size + ")");
+        return (words[i >>> 6] & (1L << i)) != 0;
+    }
+
+    void set(int i) {
+        words[i >>> 6] |= 1L << i;
+    }
+
+    long[] words() {
+        return words;
+    }
+
+    // Population count: the number of elements for which the predicate was true
+    public int cardinality() {
+        int count = 0;
+        for (long word : words)
+            count += Long.bitCount(word);
+        return count;
+    }
+
+    // Population count of the range [from, to)
+    public int cardinality(int from, int to) {
+        if (from < 0 || to > size || from > to)
+            throw new IndexOutOfBoundsException("range [" + from + ", " + to + ") out of range [0, " + size + ")");
+        if (from == to)
+            return 0;
+        int first = from >>> 6;
+        int last = (to - 1) >>> 6;
+        long firstMask = -1L << from;
+        long lastMask = -1L >>> -to;
+        if (first == last)
+            return Long.bitCount(words[first] & firstMask & lastMask);
+        int count = Long.bitCount(words[first] & firstMask);
+        for (int w = first + 1; w < last; w++)
+            count += Long.bitCount(words[w]);
+        return count + Long.bitCount(words[last] & lastMask);
+    }
+
+    // Selection vector: the indexes of all set bits, in ascending order
+    public int[] selection() {
+        int[] out = new int[cardinality()];
+        int n = 0;
+        for (int w = 0; w < words.length; w++) {
+            long word = words[w];
+            while (word != 0) {
+                out[n++] = (w << 6) + Long.numberOfTrailingZeros(word);
+                word &= word - 1; // clear lowest set bit
+            }
+        }
+        return out;
+    }
+
+    // Compaction: the elements of values for which the bit is set, in their original order
+    public int[] compact(int[] values) {
+        int[] out = new int[cardinality()];
+        compactInto(values, out);
+        return out;
+    }
+
+    // Compaction into an existing array; returns the number of elements written
+    public int compactInto(int[] values, int[] out) {
+        if (values.length < size)
+            throw new IllegalArgumentException("values array shorter than mask: " + values.length + " < " + size);
+        int n = 0;
+        for (int w = 0; w < words.length; w++) {
+            long word = words[w];
+            while (word != 0) {
+                out[n++] = values[(w << 6) + Long.numberOfTrailingZeros(word)];
+                word &= word - 1;
+            }
+        }
+        return n;
+    }
+
+    public BitMask and(BitMask other) {
+        checkSameSize(other);
+        long[] out = new long[words.length];
+        for (int w = 0; w < out.length; w++)
+            out[w] = words[w] & other.words[w];
+        return new BitMask(out, size);
+    }
+
+    public BitMask or(BitMask other) {
+        checkSameSize(other);
+        long[] out = new long[words.length];
+        for (int w = 0; w < out.length; w++)
+            out[w] = words[w] | other.words[w];
+        return new BitMask(out, size);
+    }
+
+    public BitMask not() {
+        long[] out = new long[words.length];
+        for (int w = 0; w < out.length; w++)
+            out[w] = ~words[w];
+        // Bits beyond size must stay cleared, or cardinality() would count them
+        if ((size & 63) != 0)
+            out[out.length - 1] &= -1L >>> -size;
+        return new BitMask(out, size);
+    }
+
+    private void checkSameSize(BitMask other) {
+        if (other.size != size)
+            throw new IllegalArgumentException("mask sizes differ: " + size + " != " + other.size);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof BitMask)) return false;
+        BitMask other = (BitMask) o;
+        return size == other.size && Arrays.equals(words, other.words);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * size + Arrays.hashCode(words);
+    }
+
+    @Override
+    public String toString() {
+        return "BitMask[size=" + size + ", cardinality=" + cardinality() + "]";
+    }
+
+}
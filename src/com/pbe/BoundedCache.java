@@ -0,0 +1,108 @@
+package com.pbe;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Thread safe cache with a maximum number of entries, evicting approximately least recently used entries
+// A lookup is a ConcurrentHashMap.get() plus a write of the access time to the entry, so a hit never takes a lock.
+// Exact LRU would need a shared list that every hit reorders, which is exactly the contention to avoid.
+// Instead, when the cache is full, a few entries are sampled and the one that was used longest ago is evicted.
+// Every cached key sits in one slot of a fixed array, so sampling is a few random array reads: O(1) per miss,
+// whatever the size of the cache. Inserts take a short lock to keep the slots and the map in step;
+// the value itself is computed before put(), outside of that lock.
+class BoundedCache<K, V> {
+
+    // Number of entries looked at to pick a victim
+    static final int SAMPLE_SIZE = 8;
+
+    private static final class Node<V> {
+        final V value;
+        volatile long lastAccess;
+
+        Node(V value, long lastAccess) {
+            this.value = value;
+            this.lastAccess = lastAccess;
+        }
+    }
+
+    private final ConcurrentHashMap<K, Node<V>> map;
+    private final int maxSize;
+    private final CacheStats stats;
+    // Logical clock, only advanced on a miss so hits do not share a hot counter
+    private final AtomicLong clock = new AtomicLong();
+    // slots[0 .. filled) hold the cached keys, each key exactly once; guarded by the lock on slots
+    private final Object[] slots;
+    private int filled;
+
+    BoundedCache(int maxSize, CacheStats stats) {
+        if (maxSize <= 0)
+            throw new IllegalArgumentException("maxSize must be positive: " + maxSize);
+        this.maxSize = maxSize;
+        this.stats = stats;
+        this.map = new ConcurrentHashMap<>(Math.min(maxSize, 1 << 16));
+        this.slots = new Object[maxSize];
+    }
+
+    // Returns the cached value, or null when the key is not cached
+    V get(K key) {
+        Node<V> node = map.get(key);
+        if (node == null)
+            return null;
+        // The clock only moves on a miss, so a hot key usually has the current time already;
+        // writing only on a change keeps concurrent hits from all writing the same cache line
+        long now = clock.get();
+        if (node.lastAccess != now)
+            node.lastAccess = now;
+        return node.value;
+    }
+
+    void put(K key, V value) {
+        if (map.containsKey(key))
+            return;
+        synchronized (slots) {
+            if (map.containsKey(key))
+                return;
+            int slot = filled < maxSize ? filled++ : evict();
+            map.put(key, new Node<>(value, clock.incrementAndGet()));
+            slots[slot] = key;
+        }
+    }
+
+    int size() {
+        return map.size();
+    }
+
+    int maxSize() {
+        return maxSize;
+    }
+
+    void clear() {
+        synchronized (slots) {
+            map.clear();
+            Arrays.fill(slots, null);
+            filled = 0;
+        }
+    }
+
+    // Removes the least recently used of SAMPLE_SIZE random entries and returns its (now free) slot
+    // Only called with the lock held and all slots filled
+    private int evict() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int victim = -1;
+        long oldest = Long.MAX_VALUE;
+        for (int i = 0; i < SAMPLE_SIZE; i++) {
+            int slot = random.nextInt(maxSize);
+            long lastAccess = map.get(slots[slot]).lastAccess;
+            if (victim < 0 || lastAccess < oldest) {
+                victim = slot;
+                oldest = lastAccess;
+            }
+        }
+        map.remove(slots[victim]);
+        stats.eviction();
+        return victim;
+    }
+
+}
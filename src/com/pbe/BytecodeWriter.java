@@ -0,0 +1,302 @@
+package com.pbe;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Minimal class file writer, just enough for RuleCompiler
+// Writes a final class that implements one interface, with a no-argument constructor and one method
+// whose parameters are all int and whose result is int or boolean.
+// The method body is written with the Code helper, which tracks the operand stack depth (to compute max_stack)
+// and records a stack map frame at every branch target, as the verifier requires for class files of Java 7 and later.
+// Since all values on the stack and in the locals are ints (a boolean is an int 0 or 1 in bytecode),
+// a frame is fully described by the stack depth at that point.
+class BytecodeWriter {
+
+    static final int JAVA_17 = 61;
+
+    // Opcodes used by the rule compiler
+    static final int ICONST_0 = 0x03, ICONST_1 = 0x04, BIPUSH = 0x10, SIPUSH = 0x11, LDC_W = 0x13;
+    static final int ILOAD = 0x15, ALOAD_0 = 0x2a;
+    static final int IADD = 0x60, ISUB = 0x64, IMUL = 0x68, IDIV = 0x6c, IREM = 0x70, INEG = 0x74, IXOR = 0x82;
+    static final int IFEQ = 0x99, IFNE = 0x9a;
+    static final int IF_ICMPEQ = 0x9f, IF_ICMPNE = 0xa0, IF_ICMPLT = 0xa1, IF_ICMPGE = 0xa2, IF_ICMPGT = 0xa3, IF_ICMPLE = 0xa4;
+    static final int GOTO = 0xa7, IRETURN = 0xac, RETURN = 0xb1, INVOKESPECIAL = 0xb7;
+
+    private static final int ACC_PUBLIC = 0x0001, ACC_FINAL = 0x0010, ACC_SUPER = 0x0020;
+
+    private final ByteOut pool = new ByteOut();
+    private final Map<String, Integer> poolIndex = new HashMap<>();
+    private int poolCount = 1;
+
+    // Bytecode of a method body
+    final class Code {
+        private final ByteOut out = new ByteOut();
+        private final TreeMap<Integer, Integer> frames = new TreeMap<>(); // offset -> stack depth
+        private int depth;
+        private int maxDepth;
+
+        // An instruction without operands, changing the stack depth by delta
+        void op(int opcode, int delta) {
+            out.u1(opcode);
+            adjust(delta);
+        }
+
+        void iload(int slot) {
+            out.u1(ILOAD);
+            out.u1(slot);
+            adjust(1);
+        }
+
+        void iconst(int v) {
+            if (v >= -1 && v <= 5) {
+                out.u1(ICONST_0 + v);
+            } else if (v >= Byte.MIN_VALUE && v <= Byte.MAX_VALUE) {
+                out.u1(BIPUSH);
+                out.u1(v);
+            } else if (v >= Short.MIN_VALUE && v <= Short.MAX_VALUE) {
+                out.u1(SIPUSH);
+                out.u2(v);
+            } else {
+                out.u1(LDC_W);
+                out.u2(integer(v));
+            }
+            adjust(1);
+        }
+
+        // A branch instruction; returns the position to pass to bind() once the target is known
+        int jump(int opcode, int delta) {
+            int at = out.length();
+            out.u1(opcode);
+            out.u2(0);
+            adjust(delta);
+            return at;
+        }
+
+        // Bind a forward jump to the current position, where the stack has the given depth
+        void bind(int jumpAt, int depthAtTarget) {
+            int target = out.length();
+            if (target - jumpAt > Short.MAX_VALUE)
+                throw new IllegalArgumentException("expression too large to compile");
+            out.patchU2(jumpAt + 1, target - jumpAt);
+            depth = depthAtTarget;
+            Integer previous = frames.put(target, depthAtTarget);
+            if (previous != null && previous != depthAtTarget)
+                throw new IllegalStateException("inconsistent stack depth at " + target);
+        }
+
+        int depth() {
+            return depth;
+        }
+
+        private void adjust(int delta) {
+            depth += delta;
+            maxDepth = Math.max(maxDepth, depth);
+        }
+    }
+
+    Code newCode() {
+        return new Code();
+    }
+
+    // Write the complete class
+    // intParams is the number of int parameters of the method; the result type is taken from the descriptor
+    byte[] writeClass(String className, String interfaceName, String methodName, String descriptor,
+                      int intParams, Code body) {
+        int thisClass = classRef(className);
+        int superClass = classRef("java/lang/Object");
+        int iface = classRef(interfaceName);
+        int objectInit = methodRef("java/lang/Object", "<init>", "()V");
+        int initName = utf8("<init>");
+        int initDesc = utf8("()V");
+        int name = utf8(methodName);
+        int desc = utf8(descriptor);
+        int codeAttr = utf8("Code");
+        int stackMapAttr = body.frames.isEmpty() ? 0 : utf8("StackMapTable");
+
+        ByteOut cls = new ByteOut();
+        cls.u4(0xCAFEBABE);
+        cls.u2(0);
+        cls.u2(JAVA_17);
+        cls.u2(poolCount);
+        cls.bytes(pool);
+        cls.u2(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+        cls.u2(thisClass);
+        cls.u2(superClass);
+        cls.u2(1);
+        cls.u2(iface);
+        cls.u2(0); // fields
+        cls.u2(2); // methods
+
+        // public <init>() { super(); }
+        Code init = new Code();
+        init.op(ALOAD_0, 1);
+        init.out.u1(INVOKESPECIAL);
+        init.out.u2(objectInit);
+        init.adjust(-1);
+        init.op(RETURN, 0);
+        method(cls, initName, initDesc, codeAttr, 0, init, 1, thisClass);
+
+        method(cls, name, desc, codeAttr, stackMapAttr, body, 1 + intParams, thisClass);
+
+        cls.u2(0); // class attributes
+        return cls.toByteArray();
+    }
+
+    private void method(ByteOut cls, int name, int desc, int codeAttr, int stackMapAttr,
+                        Code code, int maxLocals, int thisClass) {
+        ByteOut attr = new ByteOut();
+        attr.u2(code.maxDepth);
+        attr.u2(maxLocals);
+        attr.u4(code.out.length());
+        attr.bytes(code.out);
+        attr.u2(0); // exception table
+        if (code.frames.isEmpty()) {
+            attr.u2(0);
+        } else {
+            attr.u2(1);
+            ByteOut frames = stackMapTable(code, maxLocals, thisClass);
+            attr.u2(stackMapAttr);
+            attr.u4(frames.length());
+            attr.bytes(frames);
+        }
+
+        cls.u2(ACC_PUBLIC);
+        cls.u2(name);
+        cls.u2(desc);
+        cls.u2(1);
+        cls.u2(codeAttr);
+        cls.u4(attr.length());
+        cls.bytes(attr);
+    }
+
+    // Every frame is written as a full_frame: locals [this, int...], stack [int...]
+    private ByteOut stackMapTable(Code code, int maxLocals, int thisClass) {
+        ByteOut out = new ByteOut();
+        out.u2(code.frames.size());
+        int previous = -1;
+        for (Map.Entry<Integer, Integer> frame : code.frames.entrySet()) {
+            int offset = frame.getKey();
+            out.u1(255);
+            out.u2(previous < 0 ? offset : offset - previous - 1);
+            out.u2(maxLocals);
+            out.u1(7); // Object_variable_info: this
+            out.u2(thisClass);
+            for (int i = 1; i < maxLocals; i++)
+                out.u1(1); // Integer_variable_info
+            out.u2(frame.getValue());
+            for (int i = 0; i < frame.getValue(); i++)
+                out.u1(1);
+            previous = offset;
+        }
+        return out;
+    }
+
+    // Constant pool entries, shared when equal
+
+    private int utf8(String s) {
+        return constant("U" + s, () -> {
+            pool.u1(1);
+            byte[] b = s.getBytes(StandardCharsets.UTF_8); // the names used here are all ASCII, so this is modified UTF-8 too
+            pool.u2(b.length);
+            pool.bytes(b, b.length);
+        });
+    }
+
+    private int integer(int v) {
+        return constant("I" + v, () -> {
+            pool.u1(3);
+            pool.u4(v);
+        });
+    }
+
+    private int classRef(String internalName) {
+        int name = utf8(internalName);
+        return constant("C" + internalName, () -> {
+            pool.u1(7);
+            pool.u2(name);
+        });
+    }
+
+    private int methodRef(String owner, String name, String descriptor) {
+        int cls = classRef(owner);
+        int n = utf8(name);
+        int d = utf8(descriptor);
+        int nat = constant("N" + name + descriptor, () -> {
+            pool.u1(12);
+            pool.u2(n);
+            pool.u2(d);
+        });
+        return constant("M" + owner + "." + name + descriptor, () -> {
+            pool.u1(10);
+            pool.u2(cls);
+            pool.u2(nat);
+        });
+    }
+
+    private int constant(String key, Runnable write) {
+        Integer index = poolIndex.get(key);
+        if (index != null)
+            return index;
+        write.run();
+        poolIndex.put(key, poolCount);
+        return poolCount++;
+    }
+
+    // Growable big endian byte buffer
+    static final class ByteOut {
+        private byte[] buf = new byte[64];
+        private int len;
+
+        void u1(int v) {
+            ensure(1);
+            buf[len++] = (byte) v;
+        }
+
+        void u2(int v) {
+            ensure(2);
+            buf[len++] = (byte) (v >>> 8);
+            buf[len++] = (byte) v;
+        }
+
+        void u4(int v) {
+            u2(v >>> 16);
+            u2(v);
+        }
+
+        void bytes(byte[] b, int n) {
+            ensure(n);
+            System.arraycopy(b, 0, buf, len, n);
+            len += n;
+        }
+
+        void bytes(ByteOut other) {
+            bytes(other.buf, other.len);
+        }
+
+        void patchU2(int at, int v) {
+            buf[at] = (byte) (v >>> 8);
+            buf[at + 1] = (byte) v;
+        }
+
+        int length() {
+            return len;
+        }
+
+        byte[] toByteArray() {
+            byte[] out = new byte[len];
+            System.arraycopy(buf, 0, out, 0, len);
+            return out;
+        }
+
+        private void ensure(int n) {
+            if (len + n > buf.length) {
+                byte[] bigger = new byte[Math.max(buf.length * 2, len + n)];
+                System.arraycopy(buf, 0, bigger, 0, len);
+                buf = bigger;
+            }
+        }
+    }
+
+}
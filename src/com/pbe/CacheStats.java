@@ -0,0 +1,53 @@
+package com.pbe;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// Hit, miss and eviction counters of a memoizing function
+// The counters are LongAdders, so threads that record at the same time do not contend on a single memory location.
+public class CacheStats {
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    void hit() {
+        hits.increment();
+    }
+
+    void miss() {
+        misses.increment();
+    }
+
+    void eviction() {
+        evictions.increment();
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    public double hitRate() {
+        long h = hits(), m = misses();
+        return h + m == 0 ? 0 : (double) h / (h + m);
+    }
+
+    public void reset() {
+        hits.reset();
+        misses.reset();
+        evictions.reset();
+    }
+
+    @Override
+    public String toString() {
+        return "CacheStats[hits=" + hits() + ", misses=" + misses() + ", evictions=" + evictions() + "]";
+    }
+
+}
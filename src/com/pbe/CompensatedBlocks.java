@@ -0,0 +1,112 @@
+package com.pbe;
+
+import java.nio.DoubleBuffer;
+
+// Partial results of a blocked reduction, shared by DoubleReducer and OffHeapReducer
+// The values are cut into blocks of BLOCK elements. Every block is reduced on its own (in any thread, in any order)
+// into its slot, and sum() then combines the slots in block order. Since both reducers use this class with the
+// same BLOCK, they give bit for bit the same result for the same values.
+//
+// Summation uses Neumaier's variant of Kahan compensation. Like DoubleSummaryStatistics, a plain sum is kept as well:
+// the compensation term of an infinite value is Inf - Inf = NaN, so when the compensated sum is NaN
+// and the plain sum is infinite, the plain sum is the right answer (a sum of +Inf and finite values is +Inf).
+final class CompensatedBlocks {
+
+    // Fixed block size; part of the determinism guarantee, so it must not depend on the pool or the data
+    // OffHeapDoubles.CHUNK is a multiple of it, so no block crosses a chunk boundary
+    static final int BLOCK = 4096;
+
+    final int count;
+    final double[] sums;
+    final double[] comps;
+    final double[] simples;
+    final double[] mins;
+    final double[] maxs;
+
+    CompensatedBlocks(int count) {
+        this.count = count;
+        sums = new double[count];
+        comps = new double[count];
+        simples = new double[count];
+        mins = new double[count];
+        maxs = new double[count];
+    }
+
+    static int blockCount(long length) {
+        long n = (length + BLOCK - 1) / BLOCK;
+        if (n > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("too many blocks: " + n);
+        return (int) n;
+    }
+
+    // Reduce block 'block' of an array
+    // When center is not NaN, the block sums (x - center)^2 instead of x (and does not track min and max)
+    void reduce(double[] n, int block, double center) {
+        int from = block * BLOCK;
+        reduce(DoubleBuffer.wrap(n), from, Math.min(from + BLOCK, n.length), block, center);
+    }
+
+    // Reduce the elements [from, to) of a buffer into slot 'block'; only absolute get() is used on the buffer
+    void reduce(DoubleBuffer buf, int from, int to, int block, double center) {
+        double s = 0, c = 0, simple = 0;
+        double lo = Double.POSITIVE_INFINITY, hi = Double.NEGATIVE_INFINITY;
+        boolean squares = !Double.isNaN(center);
+        for (int i = from; i < to; i++) {
+            double x = buf.get(i);
+            if (squares) {
+                double d = x - center;
+                x = d * d;
+            } else {
+                lo = Math.min(lo, x);
+                hi = Math.max(hi, x);
+            }
+            double t = s + x;
+            if (Math.abs(s) >= Math.abs(x))
+                c += (s - t) + x;
+            else
+                c += (x - t) + s;
+            s = t;
+            simple += x;
+        }
+        sums[block] = s;
+        comps[block] = c;
+        simples[block] = simple;
+        mins[block] = lo;
+        maxs[block] = hi;
+    }
+
+    // Combine the block sums in block order, again with compensation
+    double sum() {
+        double s = 0, c = 0, simple = 0;
+        for (int i = 0; i < count; i++) {
+            double x = sums[i];
+            double t = s + x;
+            if (Math.abs(s) >= Math.abs(x))
+                c += (s - t) + x;
+            else
+                c += (x - t) + s;
+            s = t;
+            c += comps[i];
+            simple += simples[i];
+        }
+        double result = s + c;
+        if (Double.isNaN(result) && Double.isInfinite(simple))
+            return simple;
+        return result;
+    }
+
+    double min() {
+        double m = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < count; i++)
+            m = Math.min(m, mins[i]);
+        return m;
+    }
+
+    double max() {
+        double m = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < count; i++)
+            m = Math.max(m, maxs[i]);
+        return m;
+    }
+
+}
@@ -0,0 +1,29 @@
+package com.pbe;
+
+import java.util.OptionalDouble;
+
+// Non throwing counterpart of DblNumericArrayFunc
+// Instead of throwing an EmptyArrayException, an empty array is reported as status NumericResult.EMPTY.
+// For batch jobs where empty inputs are common, this avoids creating (and catching) an exception per empty array.
+public interface DblNumericArrayTryFunc {
+
+    // Returns the status (NumericResult.OK or EMPTY); on OK the value is in out
+    int tryFunc(double[] n, NumericResult out);
+
+    default OptionalDouble tryFunc(double[] n) {
+        NumericResult out = new NumericResult();
+        tryFunc(n, out);
+        return out.toOptional();
+    }
+
+    // The throwing DblNumericArrayFunc, as a thin wrapper around tryFunc()
+    default DblNumericArrayFunc throwing() {
+        return (n) -> {
+            NumericResult out = new NumericResult();
+            if (tryFunc(n, out) != NumericResult.OK)
+                throw EmptyArrayException.of();
+            return out.doubleValue();
+        };
+    }
+
+}
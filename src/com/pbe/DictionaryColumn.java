@@ -0,0 +1,203 @@
+package com.pbe;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Dictionary encoded column of Strings
+// Every distinct String gets an int code once, when the column is built; the column itself is stored as an int[] of codes.
+// Queries compare ints instead of Strings:
+// - countMatching(v): v is looked up in the dictionary once, then the codes are counted with
+//   MyArrayOps.countMatching(int[], int), a branch free (and for large columns parallel) loop
+// - groupCounts(): one pass that counts every code
+// - countIn(v1, v2, ...): a table lookup per row, whatever the number of values asked for
+// Strings are compared with equals(), so the answers are also right for Strings that are not interned.
+// A null in the source array gets code -1; countMatching(null) counts those rows, just like MyArrayOps.countMatching().
+//
+// The column is a snapshot: its queries answer for the contents of the array at the time it was built.
+// asMyFunc() plugs the column into myOp(): for the array it was built from, it answers from the codes.
+// Since a Java array cannot report that it was changed, call invalidate() after changing that array;
+// from then on asMyFunc() counts the array itself. To query the new contents through the codes, build a new column.
+// The memory report compares the column with the String[] it replaces (estimated for a 64 bit JVM with compressed oops).
+public class DictionaryColumn {
+
+    static final int NULL_CODE = -1;
+
+    private final int[] codes;
+    private final String[] dictionary; // code -> String
+    private final Map<String, Integer> index; // String -> code
+    private final long sourceBytes;
+    // The array the column was built from, to recognize it in asMyFunc(); weak, so the column does not keep it alive
+    // null after invalidate()
+    private volatile WeakReference<String[]> source;
+
+    public DictionaryColumn(String[] values) {
+        codes = new int[values.length];
+        index = new HashMap<>();
+        String[] dict = new String[16];
+        long bytes = arrayBytes(values.length);
+        for (int i = 0; i < values.length; i++) {
+            String s = values[i];
+            if (s == null) {
+                codes[i] = NULL_CODE;
+                continue;
+            }
+            Integer code = index.get(s);
+            if (code == null) {
+                code = index.size();
+                index.put(s, code);
+                if (code == dict.length)
+                    dict = Arrays.copyOf(dict, dict.length * 2);
+                dict[code] = s;
+                bytes += stringBytes(s);
+            } else if (dict[code] != s) {
+                // an equal but separate String object in the source array
+                bytes += stringBytes(s);
+            }
+            codes[i] = code;
+        }
+        dictionary = Arrays.copyOf(dict, index.size());
+        sourceBytes = bytes;
+        source = new WeakReference<>(values);
+    }
+
+    public int size() {
+        return codes.length;
+    }
+
+    // Number of distinct (non null) values
+    public int cardinality() {
+        return dictionary.length;
+    }
+
+    public String get(int i) {
+        int code = codes[i];
+        return code == NULL_CODE ? null : dictionary[code];
+    }
+
+    // Code of a value, or NULL_CODE when the value does not occur
+    public int code(String v) {
+        Integer code = v == null ? null : index.get(v);
+        return code == null ? NULL_CODE : code;
+    }
+
+    public int countMatching(String v) {
+        if (v == null)
+            return MyArrayOps.countMatching(codes, NULL_CODE);
+        int code = code(v);
+        if (code == NULL_CODE)
+            return 0;
+        return MyArrayOps.countMatching(codes, code);
+    }
+
+    // Number of rows equal to any of the given values (null included)
+    public int countIn(String... values) {
+        boolean[] wanted = new boolean[dictionary.length];
+        boolean nulls = false;
+        boolean any = false;
+        for (String v : values) {
+            int code = code(v);
+            if (code != NULL_CODE) {
+                wanted[code] = true;
+                any = true;
+            } else if (v == null) {
+                nulls = true;
+                any = true;
+            }
+        }
+        if (!any)
+            return 0;
+        int count = 0;
+        for (int code : codes)
+            if (code == NULL_CODE ? nulls : wanted[code])
+                count++;
+        return count;
+    }
+
+    // Count per code; counts[code] is the number of rows holding dictionary value 'code'
+    public int[] groupCountsByCode() {
+        int[] counts = new int[dictionary.length];
+        for (int code : codes)
+            if (code != NULL_CODE)
+                counts[code]++;
+        return counts;
+    }
+
+    // Count per (non null) value, in order of first occurrence
+    public Map<String, Integer> groupCounts() {
+        int[] counts = groupCountsByCode();
+        Map<String, Integer> out = new LinkedHashMap<>();
+        for (int code = 0; code < counts.length; code++)
+            out.put(dictionary[code], counts[code]);
+        return out;
+    }
+
+    // MyFunc<String> for use with myOp(); any other array than the source array is counted directly,
+    // and so is the source array after invalidate()
+    public MyFunc<String> asMyFunc() {
+        return (vals, v) -> isSource(vals) ? countMatching(v) : MyArrayOps.countMatching(vals, v);
+    }
+
+    // Mark the source array as changed: asMyFunc() no longer answers for it from the codes
+    // The column itself keeps answering for the contents it was built from
+    public void invalidate() {
+        source = null;
+    }
+
+    // True while asMyFunc() answers for the source array from the codes
+    public boolean isValid() {
+        WeakReference<String[]> ref = source;
+        return ref != null && ref.get() != null;
+    }
+
+    private boolean isSource(String[] vals) {
+        WeakReference<String[]> ref = source;
+        return ref != null && vals == ref.get();
+    }
+
+    // Estimated size of the String[] this column was built from, including its String objects
+    public long sourceBytes() {
+        return sourceBytes;
+    }
+
+    // Estimated size of this column: the codes, the dictionary and its hash index
+    // (the dictionary Strings themselves are counted, even though they are shared with the source array)
+    public long encodedBytes() {
+        long bytes = arrayBytes(codes.length) + arrayBytes(dictionary.length);
+        for (String s : dictionary)
+            bytes += stringBytes(s);
+        // HashMap: a 32 byte node plus a 16 byte Integer per entry, and the table
+        bytes += dictionary.length * 48L + arrayBytes(Integer.highestOneBit(Math.max(1, dictionary.length * 2)));
+        return bytes;
+    }
+
+    public long savedBytes() {
+        return sourceBytes - encodedBytes();
+    }
+
+    @Override
+    public String toString() {
+        return "DictionaryColumn[size=" + codes.length + ", cardinality=" + dictionary.length +
+                ", encodedBytes=" + encodedBytes() + ", sourceBytes=" + sourceBytes + "]";
+    }
+
+    // int[] or reference array with 4 byte elements
+    private static long arrayBytes(int length) {
+        return align(16 + 4L * length);
+    }
+
+    // String object plus its byte[]; Latin-1 strings use 1 byte per char, others 2
+    private static long stringBytes(String s) {
+        boolean latin1 = true;
+        for (int i = 0; i < s.length() && latin1; i++)
+            latin1 = s.charAt(i) < 256;
+        return 24 + align(16 + (long) s.length() * (latin1 ? 1 : 2));
+    }
+
+    private static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+
+}
@@ -0,0 +1,216 @@
+package com.pbe;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+// Reduction engine for double arrays, implementing DblNumericArrayFunc
+// func() returns the mean, so a DoubleReducer can be used wherever the 'avg' lambda in Main is used,
+// including throwing an EmptyArrayException for an empty array.
+// tryFunc() is the non throwing variant, reporting an empty array as NumericResult.EMPTY.
+//
+// Compared to the naive 'sum += n[i]' loop:
+// - Summation uses Neumaier's variant of Kahan compensation, so rounding errors do not build up over large arrays.
+//   An infinite sum stays infinite, as with the naive loop (see CompensatedBlocks).
+// - Large arrays are reduced in parallel on a ForkJoin pool. Small arrays are reduced sequentially,
+//   because below a certain size forking costs more than it saves. That threshold is measured once, on first use.
+// - The array is always cut into the same fixed size blocks, and the block results are always combined in the same order.
+//   So the result is bit for bit the same, whether it was computed sequentially or in parallel and on any number of cores.
+public class DoubleReducer implements DblNumericArrayFunc, DblNumericArrayTryFunc {
+
+    // Fixed block size; part of the determinism guarantee, so it must not depend on the pool or the array
+    static final int BLOCK = CompensatedBlocks.BLOCK;
+
+    // Number of blocks a single fork join task handles without splitting further
+    private static final int BLOCKS_PER_TASK = 8;
+
+    // Result of a full reduction
+    public static final class Stats {
+        public final int count;
+        public final double sum;
+        public final double mean;
+        public final double min;
+        public final double max;
+        public final double variance; // population variance: divided by count
+
+        Stats(int count, double sum, double mean, double min, double max, double variance) {
+            this.count = count;
+            this.sum = sum;
+            this.mean = mean;
+            this.min = min;
+            this.max = max;
+            this.variance = variance;
+        }
+
+        @Override
+        public String toString() {
+            return "Stats[count=" + count + ", sum=" + sum + ", mean=" + mean +
+                    ", min=" + min + ", max=" + max + ", variance=" + variance + "]";
+        }
+    }
+
+    private final ForkJoinPool pool;
+    private final int parallelThreshold;
+
+    // Reducer on the common pool, with the threshold measured at startup
+    public DoubleReducer() {
+        this(ForkJoinPool.commonPool(), Threshold.VALUE);
+    }
+
+    // Reducer on a given pool, with an explicit threshold (in number of elements)
+    public DoubleReducer(ForkJoinPool pool, int parallelThreshold) {
+        if (parallelThreshold < 0)
+            throw new IllegalArgumentException("threshold must not be negative: " + parallelThreshold);
+        this.pool = pool;
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    public int parallelThreshold() {
+        return parallelThreshold;
+    }
+
+    // Mean of the array, same contract as the 'avg' lambda in Main
+    public double func(double[] n) throws EmptyArrayException {
+        return mean(n);
+    }
+
+    // Mean of the array, without throwing for an empty array
+    public int tryFunc(double[] n, NumericResult out) {
+        if (n.length == 0)
+            return out.fail(NumericResult.EMPTY);
+        return out.ok(blocks(n).sum() / n.length);
+    }
+
+    // Compensated sum; the sum of an empty array is 0
+    public double sum(double[] n) {
+        if (n.length == 0)
+            return 0;
+        return blocks(n).sum();
+    }
+
+    public double mean(double[] n) throws EmptyArrayException {
+        checkNotEmpty(n);
+        return blocks(n).sum() / n.length;
+    }
+
+    public double min(double[] n) throws EmptyArrayException {
+        checkNotEmpty(n);
+        return blocks(n).min();
+    }
+
+    public double max(double[] n) throws EmptyArrayException {
+        checkNotEmpty(n);
+        return blocks(n).max();
+    }
+
+    public double variance(double[] n) throws EmptyArrayException {
+        return stats(n).variance;
+    }
+
+    // All statistics at once
+    // Variance is computed in a second pass over the deviations from the mean,
+    // which is more accurate than the one pass 'sum of squares minus square of sum' formula
+    public Stats stats(double[] n) throws EmptyArrayException {
+        checkNotEmpty(n);
+        CompensatedBlocks b = blocks(n);
+        double sum = b.sum();
+        double mean = sum / n.length;
+        CompensatedBlocks dev = run(n, mean);
+        return new Stats(n.length, sum, mean, b.min(), b.max(), dev.sum() / n.length);
+    }
+
+    private static void checkNotEmpty(double[] n) throws EmptyArrayException {
+        if (n.length == 0)
+            throw EmptyArrayException.of();
+    }
+
+    private CompensatedBlocks blocks(double[] n) {
+        return run(n, Double.NaN);
+    }
+
+    // Reduce every block, in parallel when the array is large enough
+    // When center is not NaN, the blocks sum (x - center)^2 instead of x
+    private CompensatedBlocks run(double[] n, double center) {
+        CompensatedBlocks b = new CompensatedBlocks(CompensatedBlocks.blockCount(n.length));
+        if (n.length < parallelThreshold || pool.getParallelism() == 1) {
+            for (int i = 0; i < b.count; i++)
+                b.reduce(n, i, center);
+        } else {
+            pool.invoke(new BlockTask(n, b, 0, b.count, center));
+        }
+        return b;
+    }
+
+    // Splits a range of blocks in halves until it is small enough, then reduces the blocks
+    // Each block writes only its own slot, so the split does not influence the result
+    // ForkJoinTask is Serializable, but a task is never serialized; CompensatedBlocks is not, hence transient
+    static final class BlockTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final double[] n;
+        private final transient CompensatedBlocks b;
+        private final int from;
+        private final int to;
+        private final double center;
+
+        BlockTask(double[] n, CompensatedBlocks b, int from, int to, double center) {
+            this.n = n;
+            this.b = b;
+            this.from = from;
+            this.to = to;
+            this.center = center;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= BLOCKS_PER_TASK) {
+                for (int i = from; i < to; i++)
+                    b.reduce(n, i, center);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new BlockTask(n, b, from, mid, center), new BlockTask(n, b, mid, to, center));
+        }
+    }
+
+    // Array size from which parallel reduction pays off
+    // Measured once, when the holder class is first used: the cost of a sequential pass per element
+    // is compared with the fixed cost of a fork/join round trip on the common pool.
+    // Can be overridden with -Dcom.pbe.reduce.threshold=<elements>
+    static final class Threshold {
+        static final int MIN = 1 << 14;
+        static final int MAX = 1 << 24;
+        static final int VALUE = measure();
+
+        private static int measure() {
+            Integer configured = Integer.getInteger("com.pbe.reduce.threshold");
+            if (configured != null)
+                return Math.max(0, configured);
+            if (ForkJoinPool.getCommonPoolParallelism() <= 1)
+                return Integer.MAX_VALUE;
+
+            double[] sample = new double[BLOCK * BLOCKS_PER_TASK];
+            for (int i = 0; i < sample.length; i++)
+                sample[i] = i;
+            CompensatedBlocks b = new CompensatedBlocks(BLOCKS_PER_TASK);
+            DoubleReducer probe = new DoubleReducer(ForkJoinPool.commonPool(), 0);
+
+            // A few rounds so that the measured code is at least partly compiled
+            long seqNanos = Long.MAX_VALUE, forkNanos = Long.MAX_VALUE;
+            for (int round = 0; round < 20; round++) {
+                long t0 = System.nanoTime();
+                for (int i = 0; i < b.count; i++)
+                    b.reduce(sample, i, Double.NaN);
+                long t1 = System.nanoTime();
+                probe.pool.invoke(new BlockTask(sample, b, 0, 1, Double.NaN));
+                long t2 = System.nanoTime();
+                seqNanos = Math.min(seqNanos, t1 - t0);
+                forkNanos = Math.min(forkNanos, t2 - t1);
+            }
+            double nanosPerElement = Math.max(seqNanos, 1) / (double) sample.length;
+            // Parallel pays off once the sequential time is a few times the fork/join overhead
+            long threshold = (long) (4 * forkNanos / nanosPerElement);
+            return (int) Math.max(MIN, Math.min(MAX, threshold));
+        }
+    }
+
+}
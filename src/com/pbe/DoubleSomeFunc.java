@@ -0,0 +1,21 @@
+package com.pbe;
+
+// double specialization of SomeFunc<Double>, see IntSomeFunc
+public interface DoubleSomeFunc {
+    double func(double t);
+
+    default void apply(double[] in, double[] out) {
+        if (out.length < in.length)
+            throw new IllegalArgumentException("output array too small: " + out.length + " < " + in.length);
+        for (int i = 0; i < in.length; i++)
+            out[i] = func(in[i]);
+    }
+
+    default SomeFunc<Double> boxed() {
+        return this::func;
+    }
+
+    static DoubleSomeFunc fromBoxed(SomeFunc<Double> f) {
+        return (t) -> f.func(t);
+    }
+}
@@ -2,8 +2,31 @@ package com.pbe;
 
 public class EmptyArrayException extends Exception{
 
+    private static final long serialVersionUID = 1L;
+
+    // Shared instance without a stack trace
+    // Filling in the stack trace is most of the cost of creating an exception. An instance without one,
+    // that also does not record suppressed exceptions, is immutable and can be thrown again and again.
+    private static final EmptyArrayException PREALLOCATED = new EmptyArrayException(false);
+
+    // With -Dcom.pbe.emptyArray.stackless=true, of() hands out the preallocated instance
+    private static final boolean STACKLESS = Boolean.getBoolean("com.pbe.emptyArray.stackless");
+
     EmptyArrayException() {
         super("empty array");
     }
 
-}
\ No newline at end of file
+    private EmptyArrayException(boolean writableStackTrace) {
+        super("empty array", null, false, writableStackTrace);
+    }
+
+    public static EmptyArrayException preallocated() {
+        return PREALLOCATED;
+    }
+
+    // A new exception with a stack trace, or the preallocated one in stackless mode
+    public static EmptyArrayException of() {
+        return STACKLESS ? PREALLOCATED : new EmptyArrayException();
+    }
+
+}
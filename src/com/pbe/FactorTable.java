@@ -0,0 +1,214 @@
+package com.pbe;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+// Precomputed factor information for a range of numbers [lo, hi]
+// Finding all divisors of n with isFactor from Main, '(n, d) -> (n % d) == 0', takes a modulo for every candidate d.
+// This table instead stores the smallest prime factor of every number in the range, computed with a segmented sieve:
+// - the primes up to sqrt(hi) are found once with a plain sieve
+// - the range is cut into segments of SEGMENT numbers, small enough to stay in the CPU cache while they are sieved
+// - segments are independent, so they are sieved in parallel
+// With the smallest prime factor of n, its prime factorization takes one lookup per prime factor,
+// and all divisors follow from the factorization without trying a single non divisor.
+//
+// The table answers questions about all divisors of a number: primeFactors(), divisors(), divisorCount(), commonFactors().
+// FactorTable also implements MyNumTest2, so it can be passed where isFactor is used today, but for a single
+// test() that adds nothing: it is the same 'n % d == 0', since one modulo is cheaper than anything a table lookup could do.
+// PredicateBatch recognizes it like isFactor and evaluates arrays of pairs with its branch free kernel.
+public class FactorTable implements MyNumTest2 {
+
+    // Numbers per segment: 32K ints is 128KB, which fits in the L2 cache of current CPUs
+    static final int SEGMENT = 1 << 15;
+
+    private final int lo;
+    private final int hi;
+    private final int[] spf; // smallest prime factor of lo + i; 1 for the number 1
+    private final int[] basePrimes; // all primes <= sqrt(hi)
+
+    public FactorTable(int lo, int hi) {
+        if (lo < 1 || hi < lo)
+            throw new IllegalArgumentException("invalid range [" + lo + ", " + hi + "]");
+        if ((long) hi - lo + 1 > Integer.MAX_VALUE - 8)
+            throw new IllegalArgumentException("range too large: [" + lo + ", " + hi + "]");
+        this.lo = lo;
+        this.hi = hi;
+        this.basePrimes = primesUpTo((int) Math.sqrt(hi));
+        this.spf = new int[hi - lo + 1];
+        int segments = (spf.length + SEGMENT - 1) / SEGMENT;
+        IntStream.range(0, segments).parallel().forEach(this::sieveSegment);
+    }
+
+    // Table for [1, hi]
+    public FactorTable(int hi) {
+        this(1, hi);
+    }
+
+    public int lo() {
+        return lo;
+    }
+
+    public int hi() {
+        return hi;
+    }
+
+    // Same as isFactor in Main, not a table lookup (see above)
+    public boolean test(int n, int d) {
+        return (n % d) == 0;
+    }
+
+    public boolean isPrime(int n) {
+        return n >= 2 && smallestPrimeFactor(n) == n;
+    }
+
+    // Smallest prime factor of n (n >= 1; 1 for n == 1)
+    // Inside the range this is a table lookup, outside it falls back to trial division
+    public int smallestPrimeFactor(int n) {
+        if (n < 1)
+            throw new IllegalArgumentException("n must be positive: " + n);
+        if (n >= lo && n <= hi)
+            return spf[n - lo];
+        return trialSpf(n);
+    }
+
+    // Prime factors of n (n >= 1) in ascending order, with repetition: 12 gives {2, 2, 3}, 1 gives {}
+    public int[] primeFactors(int n) {
+        if (n < 1)
+            throw new IllegalArgumentException("n must be positive: " + n);
+        int[] out = new int[31];
+        int count = 0;
+        int m = n;
+        while (m > 1) {
+            int p = smallestPrimeFactor(m);
+            out[count++] = p;
+            m /= p;
+        }
+        return Arrays.copyOf(out, count);
+    }
+
+    // All divisors of n (n >= 1) in ascending order, including 1 and n
+    public int[] divisors(int n) {
+        int[] pf = primeFactors(n);
+        int[] divs = new int[divisorCount(pf)];
+        divs[0] = 1;
+        int count = 1;
+        int i = 0;
+        while (i < pf.length) {
+            int p = pf[i];
+            int e = 0;
+            while (i < pf.length && pf[i] == p) {
+                e++;
+                i++;
+            }
+            // Multiply every divisor found so far by p, p^2, ..., p^e
+            int prev = count;
+            int pk = 1;
+            for (int k = 1; k <= e; k++) {
+                pk *= p;
+                for (int j = 0; j < prev; j++)
+                    divs[count++] = divs[j] * pk;
+            }
+        }
+        Arrays.sort(divs);
+        return divs;
+    }
+
+    public int divisorCount(int n) {
+        return divisorCount(primeFactors(n));
+    }
+
+    // Common (positive) factors of a and b: the divisors of their greatest common divisor
+    // a and b may be negative or one of them 0, but not both 0: every number divides 0
+    public int[] commonFactors(int a, int b) {
+        if (a == 0 && b == 0)
+            throw new IllegalArgumentException("every number is a common factor of 0 and 0");
+        BigInteger gcd = BigInteger.valueOf(a).gcd(BigInteger.valueOf(b));
+        if (gcd.bitLength() > 31)
+            throw new IllegalArgumentException("greatest common divisor out of int range: " + gcd);
+        return divisors(gcd.intValue());
+    }
+
+    // Number of divisors of every number in the range, computed in parallel
+    public int[] divisorCounts() {
+        int[] out = new int[spf.length];
+        IntStream.range(0, spf.length).parallel().forEach(i -> out[i] = divisorCount(lo + i));
+        return out;
+    }
+
+    // Sieve one segment: mark every multiple of every base prime, keeping the first (smallest) prime that marks it
+    private void sieveSegment(int segment) {
+        int from = lo + segment * SEGMENT;
+        int to = (int) Math.min((long) from + SEGMENT - 1, hi);
+        for (int p : basePrimes) {
+            long start = Math.max((long) p * p, ((from + (long) p - 1) / p) * p);
+            for (long m = start; m <= to; m += p) {
+                int i = (int) (m - lo);
+                if (spf[i] == 0)
+                    spf[i] = p;
+            }
+        }
+        // Unmarked numbers have no prime factor <= sqrt(hi), so they are prime (or 1)
+        for (int n = from; n <= to && n > 0; n++)
+            if (spf[n - lo] == 0)
+                spf[n - lo] = n;
+    }
+
+    private int trialSpf(int n) {
+        for (int p : basePrimes) {
+            if ((long) p * p > n)
+                return n;
+            if (n % p == 0)
+                return p;
+        }
+        // n is larger than the square of the largest base prime: continue with odd candidates
+        int start = basePrimes.length == 0 ? 2 : basePrimes[basePrimes.length - 1] + 1;
+        if (start <= 2) {
+            if (n % 2 == 0)
+                return 2;
+            start = 3;
+        }
+        if (start % 2 == 0)
+            start++;
+        for (long d = start; d * d <= n; d += 2)
+            if (n % d == 0)
+                return (int) d;
+        return n;
+    }
+
+    private static int divisorCount(int[] pf) {
+        int count = 1;
+        int i = 0;
+        while (i < pf.length) {
+            int e = 0;
+            int p = pf[i];
+            while (i < pf.length && pf[i] == p) {
+                e++;
+                i++;
+            }
+            count *= e + 1;
+        }
+        return count;
+    }
+
+    private static int[] primesUpTo(int n) {
+        if (n < 2)
+            return new int[0];
+        boolean[] composite = new boolean[n + 1];
+        int count = 0;
+        for (int i = 2; i <= n; i++) {
+            if (composite[i])
+                continue;
+            count++;
+            for (long m = (long) i * i; m <= n; m += i)
+                composite[(int) m] = true;
+        }
+        int[] primes = new int[count];
+        int k = 0;
+        for (int i = 2; i <= n; i++)
+            if (!composite[i])
+                primes[k++] = i;
+        return primes;
+    }
+
+}
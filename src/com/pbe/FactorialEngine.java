@@ -0,0 +1,172 @@
+package com.pbe;
+
+import java.math.BigInteger;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+// Exact factorials as BigInteger
+// The 'factorial' block lambda in Main computes in int, which silently wraps around above 12!.
+// This engine gives the exact value for any n, also for n in the hundreds of thousands:
+// - n <= 20 comes from a precomputed table (20! is the largest factorial that fits in a long)
+// - larger n uses Luschny's split recursive algorithm: n! = (odd part) * 2^k.
+//   The power of two is a single shift at the end, and the odd part is built from products of runs of odd numbers.
+// - Those products are computed by binary splitting (multiplying numbers of similar size, which BigInteger does fastest),
+//   and large ranges are split over the tasks of a ForkJoin pool.
+//
+// Adapters plug the engine into the existing interfaces:
+// - asSomeFunc(): SomeFunc<BigInteger>, exact for any n
+// - asNumFunc() / asIntegerFunc(): the int path, which throws an ArithmeticException instead of overflowing
+// - asNumTryFunc(): the int path without exceptions, reporting NumericResult.OVERFLOW and DOMAIN
+public class FactorialEngine {
+
+    // Largest n for which n! fits in an int and in a long
+    static final int MAX_INT_ARG = 12;
+    static final int MAX_LONG_ARG = 20;
+
+    // Below this many odd numbers, a range is multiplied in the current thread
+    private static final int PARALLEL_RANGE = 2048;
+    // Below this many odd numbers, a range is multiplied with long arithmetic before going to BigInteger
+    private static final int LEAF_RANGE = 16;
+
+    private static final long[] TABLE = new long[MAX_LONG_ARG + 1];
+
+    static {
+        TABLE[0] = 1;
+        for (int i = 1; i <= MAX_LONG_ARG; i++)
+            TABLE[i] = TABLE[i - 1] * i;
+    }
+
+    private final ForkJoinPool pool;
+
+    public FactorialEngine() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public FactorialEngine(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    public BigInteger factorial(int n) {
+        if (n < 0)
+            throw new IllegalArgumentException("factorial of a negative number: " + n);
+        if (n <= MAX_LONG_ARG)
+            return BigInteger.valueOf(TABLE[n]);
+
+        // Luschny's split recursive algorithm
+        // In round i, h = n / 2^i, and the odd numbers in (previous high, high] are multiplied into p.
+        // r collects p once per round, so odd numbers from the early rounds end up with higher exponents.
+        BigInteger p = BigInteger.ONE;
+        BigInteger r = BigInteger.ONE;
+        int shift = 0;
+        int h = 0;
+        int high = 1;
+        int log2n = 31 - Integer.numberOfLeadingZeros(n);
+        while (h != n) {
+            shift += h;
+            h = n >>> log2n--;
+            int low = high;
+            high = (h - 1) | 1;
+            if (high > low) {
+                p = p.multiply(oddProduct(low + 2, high));
+                r = r.multiply(p);
+            }
+        }
+        return r.shiftLeft(shift);
+    }
+
+    // Exact factorial as long, for n <= 20
+    public static long factorialLong(int n) {
+        if (n < 0)
+            throw new IllegalArgumentException("factorial of a negative number: " + n);
+        if (n > MAX_LONG_ARG)
+            throw new ArithmeticException("long overflow: " + n + "! does not fit in a long");
+        return TABLE[n];
+    }
+
+    // Exact factorial as int, for n <= 12
+    public static int factorialInt(int n) {
+        if (n < 0)
+            throw new IllegalArgumentException("factorial of a negative number: " + n);
+        if (n > MAX_INT_ARG)
+            throw new ArithmeticException("integer overflow: " + n + "! does not fit in an int");
+        return (int) TABLE[n];
+    }
+
+    // Non throwing int path: reports NumericResult.DOMAIN for n < 0 and OVERFLOW above 12!
+    public static int tryFactorialInt(int n, NumericResult out) {
+        if (n < 0)
+            return out.fail(NumericResult.DOMAIN);
+        if (n > MAX_INT_ARG)
+            return out.fail(NumericResult.OVERFLOW);
+        return out.ok((int) TABLE[n]);
+    }
+
+    public static NumTryFunc asNumTryFunc() {
+        return FactorialEngine::tryFactorialInt;
+    }
+
+    public SomeFunc<BigInteger> asSomeFunc() {
+        return (n) -> factorial(n.intValueExact());
+    }
+
+    public static NumFunc asNumFunc() {
+        return FactorialEngine::factorialInt;
+    }
+
+    public static SomeFunc<Integer> asIntegerFunc() {
+        return FactorialEngine::factorialInt;
+    }
+
+    // Product of the odd numbers lo, lo + 2, ..., hi (lo and hi odd, lo <= hi)
+    BigInteger oddProduct(int lo, int hi) {
+        int count = (hi - lo) / 2 + 1;
+        if (count <= PARALLEL_RANGE || pool.getParallelism() == 1)
+            return product(lo, hi);
+        return pool.invoke(new ProductTask(lo, hi));
+    }
+
+    // Binary splitting: split the range in two halves of equal count, so the two partial products have similar size
+    private static BigInteger product(int lo, int hi) {
+        int count = (hi - lo) / 2 + 1;
+        if (count <= LEAF_RANGE) {
+            // Multiply in a long as long as the product surely fits, to save BigInteger work
+            BigInteger result = BigInteger.ONE;
+            long acc = 1;
+            for (long k = lo; k <= hi; k += 2) {
+                if (acc > Long.MAX_VALUE / k) {
+                    result = result.multiply(BigInteger.valueOf(acc));
+                    acc = 1;
+                }
+                acc *= k;
+            }
+            return result.multiply(BigInteger.valueOf(acc));
+        }
+        int mid = lo + (count / 2) * 2; // first odd number of the upper half
+        return product(lo, mid - 2).multiply(product(mid, hi));
+    }
+
+    private static final class ProductTask extends RecursiveTask<BigInteger> {
+        private static final long serialVersionUID = 1L;
+
+        private final int lo;
+        private final int hi;
+
+        ProductTask(int lo, int hi) {
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected BigInteger compute() {
+            int count = (hi - lo) / 2 + 1;
+            if (count <= PARALLEL_RANGE)
+                return product(lo, hi);
+            int mid = lo + (count / 2) * 2;
+            ProductTask upper = new ProductTask(mid, hi);
+            upper.fork();
+            BigInteger lower = new ProductTask(lo, mid - 2).compute();
+            return lower.multiply(upper.join());
+        }
+    }
+
+}
@@ -0,0 +1,171 @@
+package com.pbe;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+// Frequency index over one array, for answering countMatching() queries in O(1)
+// The index counts every distinct value once, when it is built. After that a count is a single map lookup,
+// instead of a scan of the whole array per query, which pays off for read heavy use.
+//
+// Since a Java array cannot report that it was changed, the index has to be told:
+// - Changes made through set() update the index directly
+// - After any other change to the array, call invalidate(). The index is then rebuilt on the next query.
+//
+// The index can be passed anywhere a MyFunc<T> is expected:
+// myOp(index::countMatching, vals, v)
+// When it is called with a different array than the indexed one, it falls back to MyArrayOps.countMatching().
+// One index can be shared between threads. Queries take no lock: the counts are an immutable map,
+// published through a volatile field. set() publishes a changed copy (copy on write) and rebuilds happen
+// under the lock, so concurrent readers never block each other. This suits the read heavy use the index is for;
+// for many writes, write the array directly and call invalidate() once.
+public class FrequencyIndex<T> {
+
+    // How two values are considered equal
+    public enum Equality {
+        // equals() and hashCode(), the same as MyArrayOps.countMatching()
+        EQUALS,
+        // ==, for arrays of objects that have no meaningful equals() or are known to be canonical
+        IDENTITY
+    }
+
+    // Rough sizes on a 64 bit JVM with compressed oops, used for the memory estimate
+    private static final int NODE_BYTES = 32;    // HashMap.Node: header, hash, key, value, next
+    private static final int COUNTER_BYTES = 16; // the int[1] counter of every distinct value
+    private static final int SLOT_BYTES = 4;     // a reference in a table array
+    private static final int ARRAY_HEADER_BYTES = 16;
+
+    private final T[] vals;
+    private final Equality equality;
+    // Never modified once published; null when out of date
+    private volatile Map<T, int[]> counts;
+    // Guarded by this
+    private long buildNanos;
+    private int builds;
+
+    public FrequencyIndex(T[] vals) {
+        this(vals, Equality.EQUALS);
+    }
+
+    public FrequencyIndex(T[] vals, Equality equality) {
+        this.vals = vals;
+        this.equality = equality;
+        build();
+    }
+
+    // Count the occurrences of v in the indexed array
+    // Compatible with MyFunc<T>, so index::countMatching can be passed to myOp()
+    public int countMatching(T[] array, T v) {
+        if (array != vals)
+            return equality == Equality.EQUALS ? MyArrayOps.countMatching(array, v) : countIdentical(array, v);
+        return count(v);
+    }
+
+    public int count(T v) {
+        int[] c = current().get(v);
+        return c == null ? 0 : c[0];
+    }
+
+    // Write a value to the indexed array and keep the index up to date
+    // The map is copied, with new counters for the two values that changed, and the copy is published
+    public synchronized void set(int i, T v) {
+        T old = vals[i];
+        vals[i] = v;
+        Map<T, int[]> m = counts;
+        if (m == null)
+            return;
+        Map<T, int[]> copy = newMap();
+        copy.putAll(m);
+        int oldCount = copy.get(old)[0] - 1;
+        if (oldCount == 0)
+            copy.remove(old);
+        else
+            copy.put(old, new int[] { oldCount });
+        int[] c = copy.get(v);
+        copy.put(v, new int[] { c == null ? 1 : c[0] + 1 });
+        counts = copy;
+    }
+
+    // Mark the index as out of date after the array was changed directly
+    public synchronized void invalidate() {
+        counts = null;
+    }
+
+    public boolean isValid() {
+        return counts != null;
+    }
+
+    // Number of distinct values in the array
+    public int distinctValues() {
+        return current().size();
+    }
+
+    // Time the last build took, in nanoseconds
+    public synchronized long buildNanos() {
+        return buildNanos;
+    }
+
+    // Number of times the index was built, including rebuilds after invalidate()
+    public synchronized int builds() {
+        return builds;
+    }
+
+    // Estimated memory used by the index (not counting the array and its values), in bytes
+    public long estimatedBytes() {
+        Map<T, int[]> m = counts;
+        if (m == null)
+            return 0;
+        int size = m.size();
+        if (equality == Equality.IDENTITY) {
+            // IdentityHashMap is open addressed: keys and values alternate in one Object[], no nodes.
+            // The array has a power of two length of at least 64, grown while it is more than 1/3 full.
+            int table = 64;
+            while (3L * size > table)
+                table *= 2;
+            return ARRAY_HEADER_BYTES + (long) table * SLOT_BYTES + (long) size * COUNTER_BYTES;
+        }
+        // HashMap: a node per entry, and a table of a power of two length, kept at most 75% full
+        int table = Integer.highestOneBit(Math.max(1, (int) (size / 0.75f)) * 2 - 1);
+        return (long) size * (NODE_BYTES + COUNTER_BYTES) + ARRAY_HEADER_BYTES + (long) table * SLOT_BYTES;
+    }
+
+    @Override
+    public synchronized String toString() {
+        Map<T, int[]> m = counts;
+        return "FrequencyIndex[length=" + vals.length + ", distinct=" + (m == null ? "?" : m.size()) +
+                ", equality=" + equality + ", buildNanos=" + buildNanos + ", estimatedBytes=" + estimatedBytes() + "]";
+    }
+
+    // The published counts, rebuilt first when they are out of date
+    private Map<T, int[]> current() {
+        Map<T, int[]> m = counts;
+        return m != null ? m : build();
+    }
+
+    // Count every value into a new map and publish it; the counters are only written before publication
+    private synchronized Map<T, int[]> build() {
+        Map<T, int[]> m = counts;
+        if (m != null)
+            return m; // built by another thread in the meantime
+        long start = System.nanoTime();
+        m = newMap();
+        for (T v : vals)
+            m.computeIfAbsent(v, k -> new int[1])[0]++;
+        counts = m;
+        buildNanos = System.nanoTime() - start;
+        builds++;
+        return m;
+    }
+
+    private Map<T, int[]> newMap() {
+        return equality == Equality.EQUALS ? new HashMap<>() : new IdentityHashMap<>();
+    }
+
+    private static <T> int countIdentical(T[] array, T v) {
+        int count = 0;
+        for (T t : array)
+            if (t == v) count++;
+        return count;
+    }
+
+}
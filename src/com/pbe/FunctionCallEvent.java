@@ -0,0 +1,27 @@
+package com.pbe;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// JFR event for one call of an instrumented function
+// Disabled by default, so it only costs something in a recording that explicitly enables it:
+// java -XX:StartFlightRecording:com.pbe.FunctionCall#enabled=true,filename=rec.jfr ...
+// The duration is the duration of the call; a threshold can be set to only record slow calls.
+@Name("com.pbe.FunctionCall")
+@Label("Function Call")
+@Category({"com.pbe", "Functional Interfaces"})
+@Description("Call of an instrumented functional interface instance")
+@Enabled(false)
+class FunctionCallEvent extends Event {
+
+    @Label("Function")
+    String function;
+
+    @Label("Failed")
+    boolean failed;
+
+}
@@ -0,0 +1,73 @@
+package com.pbe;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// Metrics of one named, instrumented function
+public class FunctionMetrics {
+
+    private final String name;
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder exceptions = new LongAdder();
+    private final LongAdder emptyArrayExceptions = new LongAdder();
+    private final LongAdder allocatedBytes = new LongAdder();
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    FunctionMetrics(String name) {
+        this.name = name;
+    }
+
+    void record(long nanos, Throwable failure, long allocated) {
+        calls.increment();
+        latency.record(nanos);
+        if (failure != null) {
+            exceptions.increment();
+            if (failure instanceof EmptyArrayException)
+                emptyArrayExceptions.increment();
+        }
+        if (allocated > 0)
+            allocatedBytes.add(allocated);
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public long calls() {
+        return calls.sum();
+    }
+
+    public long exceptions() {
+        return exceptions.sum();
+    }
+
+    public long emptyArrayExceptions() {
+        return emptyArrayExceptions.sum();
+    }
+
+    // Total bytes allocated by the calls; only counted when allocation tracking is on
+    public long allocatedBytes() {
+        return allocatedBytes.sum();
+    }
+
+    public LatencyHistogram latency() {
+        return latency;
+    }
+
+    public void reset() {
+        calls.reset();
+        exceptions.reset();
+        emptyArrayExceptions.reset();
+        allocatedBytes.reset();
+        latency.reset();
+    }
+
+    @Override
+    public String toString() {
+        long n = calls();
+        return String.format("%s: calls=%d exceptions=%d (empty array %d) p50=%dns p99=%dns max=%dns%s",
+                name, n, exceptions(), emptyArrayExceptions(),
+                latency.percentile(50), latency.percentile(99), latency.max(),
+                allocatedBytes() > 0 && n > 0 ? " alloc/call=" + allocatedBytes() / n + "B" : "");
+    }
+
+}
@@ -0,0 +1,232 @@
+package com.pbe;
+
+// Registry of named, ready made implementations of the functional interfaces, for short running jobs
+// Every lambda expression and method reference is linked on its first execution: an invokedynamic call to
+// LambdaMetafactory spins a class for it at run time. For a job that only runs for a few hundred milliseconds,
+// that linking (and the startup of the lambda machinery behind the first one) is a noticeable part of the run.
+// The implementations below are plain nested classes instead. They are compiled ahead of time like any other class,
+// so using them involves no bootstrap at all, and they can be stored in a CDS archive (see StartupBench).
+// Each instance is created once, when its class is first used.
+//
+// The registry is kept by hand on purpose, rather than generated by the build: every entry is a copy of a lambda
+// body from Main, so a generator would need those bodies as Java source in its input list anyway, and the
+// com.pbe sources would no longer compile on their own (in an IDE, or with plain javac) without running it first.
+// When a lambda in Main changes or is added, change or add its class here.
+//
+// Example, the same as stringOp(StaticMyStringOps::strReverse, inStr) in Main:
+// outStr = Main.stringOp(FunctionRegistry.stringFunc("strReverse"), inStr);
+public class FunctionRegistry {
+
+    private FunctionRegistry() {
+    }
+
+    public static StringFunc stringFunc(String name) {
+        switch (name) {
+            case "strReverse":
+            case "reverse": return StrReverse.INSTANCE;
+            case "upperCase": return UpperCase.INSTANCE;
+            case "removeSpaces": return RemoveSpaces.INSTANCE;
+            default: throw unknown("StringFunc", name);
+        }
+    }
+
+    public static NumFunc numFunc(String name) {
+        switch (name) {
+            case "factorial": return Factorial.INSTANCE;
+            default: throw unknown("NumFunc", name);
+        }
+    }
+
+    public static IntSomeFunc intSomeFunc(String name) {
+        switch (name) {
+            case "factorial": return Factorial.INSTANCE;
+            default: throw unknown("IntSomeFunc", name);
+        }
+    }
+
+    // SomeFunc<T> for a value type: someFunc("reverse2", String.class), someFunc("factorial2", Integer.class)
+    // The type is checked, so a SomeFunc is never handed out for the wrong type
+    @SuppressWarnings("unchecked")
+    public static <T> SomeFunc<T> someFunc(String name, Class<T> type) {
+        Class<?> actual;
+        SomeFunc<?> f;
+        switch (name) {
+            case "reverse2": actual = String.class; f = Reverse2.INSTANCE; break;
+            case "factorial2": actual = Integer.class; f = Factorial2.INSTANCE; break;
+            default: throw unknown("SomeFunc", name);
+        }
+        if (actual != type)
+            throw new IllegalArgumentException("SomeFunc '" + name + "' is a SomeFunc<" + actual.getSimpleName() +
+                    ">, not a SomeFunc<" + type.getSimpleName() + ">");
+        return (SomeFunc<T>) f;
+    }
+
+    public static MyNum myNum(String name) {
+        switch (name) {
+            case "constant": return Constant.INSTANCE;
+            case "random": return RandomValue.INSTANCE;
+            default: throw unknown("MyNum", name);
+        }
+    }
+
+    public static MyNumTest myNumTest(String name) {
+        switch (name) {
+            case "isEven": return IsEven.INSTANCE;
+            case "isPositive": return IsPositive.INSTANCE;
+            default: throw unknown("MyNumTest", name);
+        }
+    }
+
+    public static MyNumTest2 myNumTest2(String name) {
+        switch (name) {
+            case "isFactor": return IsFactor.INSTANCE;
+            default: throw unknown("MyNumTest2", name);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> MyFunc<T> myFunc(String name) {
+        switch (name) {
+            case "countMatching": return (MyFunc<T>) CountMatching.INSTANCE;
+            default: throw unknown("MyFunc", name);
+        }
+    }
+
+    public static DblNumericArrayFunc dblNumericArrayFunc(String name) {
+        switch (name) {
+            case "avg": return Avg.INSTANCE;
+            default: throw unknown("DblNumericArrayFunc", name);
+        }
+    }
+
+    private static IllegalArgumentException unknown(String type, String name) {
+        return new IllegalArgumentException("no " + type + " named '" + name + "'");
+    }
+
+    // The implementations; each one does what the lambda or method reference of the same name in Main does
+
+    static final class StrReverse implements StringFunc {
+        static final StrReverse INSTANCE = new StrReverse();
+
+        public String func(String str) {
+            return StaticMyStringOps.strReverse(str);
+        }
+    }
+
+    static final class UpperCase implements StringFunc {
+        static final UpperCase INSTANCE = new UpperCase();
+
+        public String func(String str) {
+            return str.toUpperCase();
+        }
+    }
+
+    static final class RemoveSpaces implements StringFunc {
+        static final RemoveSpaces INSTANCE = new RemoveSpaces();
+
+        public String func(String str) {
+            StringBuilder sb = new StringBuilder(str.length());
+            for (int i = 0; i < str.length(); i++)
+                if (str.charAt(i) != ' ')
+                    sb.append(str.charAt(i));
+            return sb.toString();
+        }
+    }
+
+    // The int factorial of Main, wrapping around above 12! just like the lambda does
+    static final class Factorial implements NumFunc, IntSomeFunc {
+        static final Factorial INSTANCE = new Factorial();
+
+        public int func(int n) {
+            int result = 1;
+            for (int i = 1; i <= n; i++)
+                result = i * result;
+            return result;
+        }
+    }
+
+    static final class Reverse2 implements SomeFunc<String> {
+        static final Reverse2 INSTANCE = new Reverse2();
+
+        public String func(String str) {
+            return StaticMyStringOps.strReverse(str);
+        }
+    }
+
+    static final class Factorial2 implements SomeFunc<Integer> {
+        static final Factorial2 INSTANCE = new Factorial2();
+
+        public Integer func(Integer n) {
+            int result = 1;
+            for (int i = 1; i <= n; i++)
+                result = i * result;
+            return result;
+        }
+    }
+
+    // myNum = () -> 12345.678
+    static final class Constant implements MyNum {
+        static final Constant INSTANCE = new Constant();
+
+        public double getValue() {
+            return 12345.678;
+        }
+    }
+
+    // myNum = () -> Math.random() * 2
+    static final class RandomValue implements MyNum {
+        static final RandomValue INSTANCE = new RandomValue();
+
+        public double getValue() {
+            return Math.random() * 2;
+        }
+    }
+
+    static final class IsEven implements MyNumTest {
+        static final IsEven INSTANCE = new IsEven();
+
+        public boolean test(int n) {
+            return (n % 2) == 0;
+        }
+    }
+
+    static final class IsPositive implements MyNumTest {
+        static final IsPositive INSTANCE = new IsPositive();
+
+        public boolean test(int n) {
+            return n >= 0;
+        }
+    }
+
+    static final class IsFactor implements MyNumTest2 {
+        static final IsFactor INSTANCE = new IsFactor();
+
+        public boolean test(int n, int d) {
+            return (n % d) == 0;
+        }
+    }
+
+    static final class CountMatching implements MyFunc<Object> {
+        static final CountMatching INSTANCE = new CountMatching();
+
+        public int func(Object[] vals, Object v) {
+            return MyArrayOps.countMatching(vals, v);
+        }
+    }
+
+    static final class Avg implements DblNumericArrayFunc {
+        static final Avg INSTANCE = new Avg();
+
+        public double func(double[] n) throws EmptyArrayException {
+            double sum = 0;
+            if (n.length == 0)
+                throw new EmptyArrayException();
+
+            for (int i = 0; i < n.length; i++)
+                sum += n[i];
+
+            return sum / n.length;
+        }
+    }
+
+}
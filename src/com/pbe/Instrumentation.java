@@ -0,0 +1,196 @@
+package com.pbe;
+
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Opt-in instrumentation of StringFunc, NumFunc, MyNumTest and DblNumericArrayFunc instances
+// Wrapping a function under a name records, per call: the call count, the latency (in a LatencyHistogram),
+// exceptions (EmptyArrayException counted separately) and, optionally, the bytes the call allocated.
+// Each call is also a FunctionCallEvent for Java Flight Recorder.
+// Example:
+// DblNumericArrayFunc avg = Instrumentation.dblNumericArrayFunc("avg", (n) -> { ... });
+// ...
+// Instrumentation.dump(System.out);
+//
+// Instrumentation is off unless the JVM is started with -Dcom.pbe.instrument=true, or setEnabled(true) is called.
+// - A function wrapped while instrumentation is off is returned as is, so it costs nothing at all.
+// - A wrapper checks the flag on every call; while off it only adds that check and a direct call.
+// Allocation tracking (-Dcom.pbe.instrument.allocations=true) reads the allocation counter of the thread
+// before and after every call, which is considerably more expensive; only turn it on when looking for allocations.
+public class Instrumentation {
+
+    private static volatile boolean enabled = Boolean.getBoolean("com.pbe.instrument");
+    private static volatile boolean trackAllocations;
+
+    private static final ConcurrentHashMap<String, FunctionMetrics> REGISTRY = new ConcurrentHashMap<>();
+
+    // Allocation counter per thread; null when the JVM does not offer one
+    private static final com.sun.management.ThreadMXBean THREADS = threadBean();
+
+    static {
+        setTrackAllocations(Boolean.getBoolean("com.pbe.instrument.allocations"));
+    }
+
+    private Instrumentation() {
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean on) {
+        enabled = on;
+    }
+
+    public static void setTrackAllocations(boolean on) {
+        trackAllocations = on && THREADS != null;
+    }
+
+    public static StringFunc stringFunc(String name, StringFunc f) {
+        if (!enabled)
+            return f;
+        FunctionMetrics m = metrics(name);
+        return (str) -> {
+            if (!enabled)
+                return f.func(str);
+            Call call = new Call(m);
+            try {
+                String result = f.func(str);
+                call.end(null);
+                return result;
+            } catch (RuntimeException | Error e) {
+                call.end(e);
+                throw e;
+            }
+        };
+    }
+
+    public static NumFunc numFunc(String name, NumFunc f) {
+        if (!enabled)
+            return f;
+        FunctionMetrics m = metrics(name);
+        return (n) -> {
+            if (!enabled)
+                return f.func(n);
+            Call call = new Call(m);
+            try {
+                int result = f.func(n);
+                call.end(null);
+                return result;
+            } catch (RuntimeException | Error e) {
+                call.end(e);
+                throw e;
+            }
+        };
+    }
+
+    public static MyNumTest myNumTest(String name, MyNumTest f) {
+        if (!enabled)
+            return f;
+        FunctionMetrics m = metrics(name);
+        return (n) -> {
+            if (!enabled)
+                return f.test(n);
+            Call call = new Call(m);
+            try {
+                boolean result = f.test(n);
+                call.end(null);
+                return result;
+            } catch (RuntimeException | Error e) {
+                call.end(e);
+                throw e;
+            }
+        };
+    }
+
+    public static DblNumericArrayFunc dblNumericArrayFunc(String name, DblNumericArrayFunc f) {
+        if (!enabled)
+            return f;
+        FunctionMetrics m = metrics(name);
+        return (n) -> {
+            if (!enabled)
+                return f.func(n);
+            Call call = new Call(m);
+            try {
+                double result = f.func(n);
+                call.end(null);
+                return result;
+            } catch (EmptyArrayException | RuntimeException | Error e) {
+                call.end(e);
+                throw e;
+            }
+        };
+    }
+
+    // Metrics for a name, created on first use; wrappers with the same name share them
+    public static FunctionMetrics metrics(String name) {
+        return REGISTRY.computeIfAbsent(name, FunctionMetrics::new);
+    }
+
+    // All metrics, sorted by name
+    public static List<FunctionMetrics> snapshot() {
+        List<FunctionMetrics> list = new ArrayList<>(REGISTRY.values());
+        list.sort(Comparator.comparing(FunctionMetrics::name));
+        return list;
+    }
+
+    public static void dump(PrintStream out) {
+        for (FunctionMetrics m : snapshot())
+            out.println(m);
+    }
+
+    public static void reset() {
+        for (FunctionMetrics m : REGISTRY.values())
+            m.reset();
+    }
+
+    // Measurement of a single call
+    private static final class Call {
+        private final FunctionMetrics metrics;
+        private final FunctionCallEvent event;
+        private final long start;
+        private final long allocStart;
+
+        Call(FunctionMetrics metrics) {
+            this.metrics = metrics;
+            FunctionCallEvent e = new FunctionCallEvent();
+            if (e.isEnabled()) {
+                e.begin();
+                event = e;
+            } else {
+                event = null;
+            }
+            allocStart = trackAllocations ? THREADS.getCurrentThreadAllocatedBytes() : -1;
+            start = System.nanoTime();
+        }
+
+        void end(Throwable failure) {
+            long nanos = System.nanoTime() - start;
+            long allocated = allocStart >= 0 ? THREADS.getCurrentThreadAllocatedBytes() - allocStart : 0;
+            metrics.record(nanos, failure, allocated);
+            if (event != null) {
+                event.end();
+                event.function = metrics.name();
+                event.failed = failure != null;
+                event.commit();
+            }
+        }
+    }
+
+    private static com.sun.management.ThreadMXBean threadBean() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean sun = (com.sun.management.ThreadMXBean) bean;
+            if (sun.isThreadAllocatedMemorySupported()) {
+                sun.setThreadAllocatedMemoryEnabled(true);
+                return sun;
+            }
+        }
+        return null;
+    }
+
+}
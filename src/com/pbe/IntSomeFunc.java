@@ -0,0 +1,33 @@
+package com.pbe;
+
+// int specialization of SomeFunc<Integer>
+// SomeFunc<Integer> boxes the argument and the result of every call (new Integer objects for values outside -128..127).
+// IntSomeFunc takes and returns a plain int, so a call allocates nothing.
+// The default and static methods bridge to and from SomeFunc<Integer> and NumFunc, so both forms can be mixed.
+public interface IntSomeFunc {
+    int func(int t);
+
+    // Apply to every element of in, writing to out (which may be the same array)
+    default void apply(int[] in, int[] out) {
+        if (out.length < in.length)
+            throw new IllegalArgumentException("output array too small: " + out.length + " < " + in.length);
+        for (int i = 0; i < in.length; i++)
+            out[i] = func(in[i]);
+    }
+
+    default SomeFunc<Integer> boxed() {
+        return this::func;
+    }
+
+    default NumFunc asNumFunc() {
+        return this::func;
+    }
+
+    static IntSomeFunc fromBoxed(SomeFunc<Integer> f) {
+        return (t) -> f.func(t);
+    }
+
+    static IntSomeFunc fromNumFunc(NumFunc f) {
+        return f::func;
+    }
+}
@@ -0,0 +1,78 @@
+package com.pbe;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Histogram of latencies in nanoseconds, in the style of HdrHistogram
+// Buckets are log-linear: every power of two range is split in 16 equal sub buckets,
+// so any recorded value is off by at most 1/16 (6.25%) of its size, from 1 ns up to Long.MAX_VALUE ns,
+// with a fixed array of under a thousand counters.
+// Recording is a single atomic increment, so many threads can record without locking.
+// Reading (count, percentile) works on the live counters; it is consistent enough for monitoring, not a snapshot.
+public class LatencyHistogram {
+
+    private static final int SUB_BITS = 5;                 // values below 2^5 get a bucket each
+    private static final int SUB_COUNT = 1 << (SUB_BITS - 1); // 16 sub buckets per power of two above that
+    static final int BUCKETS = (64 - SUB_BITS + 1) * SUB_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    public void record(long nanos) {
+        counts.incrementAndGet(bucket(Math.max(0, nanos)));
+    }
+
+    static int bucket(long v) {
+        if (v < (1 << SUB_BITS))
+            return (int) v;
+        int shift = 63 - Long.numberOfLeadingZeros(v) - (SUB_BITS - 1);
+        return shift * SUB_COUNT + (int) (v >>> shift);
+    }
+
+    // Smallest value that falls in a bucket
+    static long lowerBound(int bucket) {
+        if (bucket < (1 << SUB_BITS))
+            return bucket;
+        int shift = bucket / SUB_COUNT - 1;
+        long mantissa = bucket % SUB_COUNT + SUB_COUNT;
+        return mantissa << shift;
+    }
+
+    public long count() {
+        long n = 0;
+        for (int i = 0; i < BUCKETS; i++)
+            n += counts.get(i);
+        return n;
+    }
+
+    // Value at a percentile (0 to 100), as the lower bound of the bucket it falls in; 0 when empty
+    public long percentile(double p) {
+        long[] c = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            c[i] = counts.get(i);
+            total += c[i];
+        }
+        if (total == 0)
+            return 0;
+        long rank = Math.max(1, (long) Math.ceil(p / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += c[i];
+            if (seen >= rank)
+                return lowerBound(i);
+        }
+        return lowerBound(BUCKETS - 1);
+    }
+
+    public long max() {
+        for (int i = BUCKETS - 1; i >= 0; i--)
+            if (counts.get(i) != 0)
+                return lowerBound(i);
+        return 0;
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++)
+            counts.set(i, 0);
+    }
+
+}
@@ -0,0 +1,34 @@
+package com.pbe;
+
+// MyNum that computes its value once, on the first call, and returns the stored value after that
+// For suppliers of a constant that is expensive to compute, such as a value read from a file or derived from a long series.
+// Thread safe: when several threads call getValue() at the same time before the value is known,
+// only one of them computes it and the others wait for that result.
+public class LazyNum implements MyNum {
+
+    private MyNum supplier; // cleared once the value is known, so it can be garbage collected
+    private volatile boolean computed;
+    private double value;
+
+    public LazyNum(MyNum supplier) {
+        this.supplier = supplier;
+    }
+
+    public double getValue() {
+        if (!computed) {
+            synchronized (this) {
+                if (!computed) {
+                    value = supplier.getValue();
+                    supplier = null;
+                    computed = true; // volatile write publishes value
+                }
+            }
+        }
+        return value;
+    }
+
+    public boolean isComputed() {
+        return computed;
+    }
+
+}
@@ -0,0 +1,26 @@
+package com.pbe;
+
+// long specialization of SomeFunc<Long>, see IntSomeFunc
+public interface LongSomeFunc {
+    long func(long t);
+
+    default void apply(long[] in, long[] out) {
+        if (out.length < in.length)
+            throw new IllegalArgumentException("output array too small: " + out.length + " < " + in.length);
+        for (int i = 0; i < in.length; i++)
+            out[i] = func(in[i]);
+    }
+
+    default SomeFunc<Long> boxed() {
+        return this::func;
+    }
+
+    static LongSomeFunc fromBoxed(SomeFunc<Long> f) {
+        return (t) -> f.func(t);
+    }
+
+    // A NumFunc widened to long; arguments outside the int range throw an ArithmeticException
+    static LongSomeFunc fromNumFunc(NumFunc f) {
+        return (t) -> f.func(Math.toIntExact(t));
+    }
+}
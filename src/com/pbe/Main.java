@@ -1,5 +1,8 @@
 package com.pbe;
 
+import java.io.IOException;
+import java.nio.file.Path;
+
 /** Study on Lambda Expressions
  * Following Java The Complete Reference by Herbert Schildt i.c.w. (Udemy) Java programming masterclass for software developers Tim Buchalka.
  @author Pieter Beernink
@@ -409,6 +412,12 @@ public class Main {
         return sf.func(s);
     }
 
+    // Streaming version of stringOp(), applying sf to every line of a file and writing the results to another file
+    // The file is processed in chunks, in parallel, and never loaded as a whole (see StreamingStringOp)
+    static StreamingStringOp.Report stringOp(StringFunc sf, Path in, Path out) throws IOException {
+        return new StreamingStringOp(sf).run(in, out);
+    }
+
     // Method with MyFunc functional interface as the type of its first parameter
     // The other two parameters receive an array and a value, both of Type T
     static <T> int myOp(MyFunc<T> f, T[] vals, T v) {
@@ -0,0 +1,177 @@
+package com.pbe;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Memoizing decorators for pure functions: a result is computed once and then served from a cache
+// Each interface has its own factory method, so a lambda can be passed without a cast.
+// Example, with factorial and factorial2 from Main:
+// NumFunc fastFactorial = Memoizer.numFunc(factorial, 1024);
+// SomeFunc<Integer> fastFactorial2 = Memoizer.someFunc(factorial2, 10_000);
+//
+// All decorators are thread safe and can be shared. A cache hit never takes a lock.
+// Two threads that miss on the same key at the same time may both compute the value; for a pure function that is harmless.
+// NOTE: only memoize functions whose result depends on the argument alone.
+public class Memoizer {
+
+    private Memoizer() {
+    }
+
+    public static MemoNumFunc numFunc(NumFunc f, int capacity) {
+        return new MemoNumFunc(f, capacity);
+    }
+
+    public static <T> MemoSomeFunc<T> someFunc(SomeFunc<T> f, int maxSize) {
+        return new MemoSomeFunc<>(f, maxSize);
+    }
+
+    public static MemoStringFunc stringFunc(StringFunc f, int maxSize) {
+        return new MemoStringFunc(f, maxSize);
+    }
+
+    // NumFunc cache keyed by the int argument itself, without boxing
+    // Direct mapped: each argument has exactly one slot (chosen by a hash of the argument),
+    // and a new result simply replaces whatever was in that slot. The size of the cache is therefore fixed.
+    // A slot holds an immutable entry, so a reader always sees a matching key and value.
+    public static final class MemoNumFunc implements NumFunc {
+
+        private static final class Entry {
+            final int key;
+            final int value;
+
+            Entry(int key, int value) {
+                this.key = key;
+                this.value = value;
+            }
+        }
+
+        private final NumFunc f;
+        private final AtomicReferenceArray<Entry> slots;
+        private final int mask;
+        private final CacheStats stats = new CacheStats();
+
+        MemoNumFunc(NumFunc f, int capacity) {
+            if (capacity <= 0)
+                throw new IllegalArgumentException("capacity must be positive: " + capacity);
+            this.f = f;
+            int size = Integer.highestOneBit(Math.min(capacity, 1 << 30) * 2 - 1); // round up to a power of two
+            this.slots = new AtomicReferenceArray<>(size);
+            this.mask = size - 1;
+        }
+
+        public int func(int n) {
+            int slot = spread(n) & mask;
+            Entry e = slots.get(slot);
+            if (e != null && e.key == n) {
+                stats.hit();
+                return e.value;
+            }
+            stats.miss();
+            int value = f.func(n);
+            if (e != null)
+                stats.eviction();
+            slots.set(slot, new Entry(n, value));
+            return value;
+        }
+
+        public CacheStats stats() {
+            return stats;
+        }
+
+        public int capacity() {
+            return slots.length();
+        }
+
+        public void clear() {
+            for (int i = 0; i < slots.length(); i++)
+                slots.set(i, null);
+        }
+
+        // Mix the bits, so that arguments that differ only in their high bits do not all share a slot
+        private static int spread(int n) {
+            int h = n * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+    }
+
+    // SomeFunc<T> cache with a bounded number of entries and approximate LRU eviction
+    // A null argument is passed straight to the function and never cached.
+    public static final class MemoSomeFunc<T> implements SomeFunc<T> {
+
+        private final SomeFunc<T> f;
+        private final CacheStats stats = new CacheStats();
+        private final BoundedCache<T, T> cache;
+
+        MemoSomeFunc(SomeFunc<T> f, int maxSize) {
+            this.f = f;
+            this.cache = new BoundedCache<>(maxSize, stats);
+        }
+
+        public T func(T t) {
+            if (t == null)
+                return f.func(null);
+            T cached = cache.get(t);
+            if (cached != null) {
+                stats.hit();
+                return cached;
+            }
+            stats.miss();
+            T value = f.func(t);
+            if (value != null)
+                cache.put(t, value);
+            return value;
+        }
+
+        public CacheStats stats() {
+            return stats;
+        }
+
+        public int size() {
+            return cache.size();
+        }
+
+        public void clear() {
+            cache.clear();
+        }
+    }
+
+    // StringFunc cache, same policy as MemoSomeFunc
+    public static final class MemoStringFunc implements StringFunc {
+
+        private final StringFunc f;
+        private final CacheStats stats = new CacheStats();
+        private final BoundedCache<String, String> cache;
+
+        MemoStringFunc(StringFunc f, int maxSize) {
+            this.f = f;
+            this.cache = new BoundedCache<>(maxSize, stats);
+        }
+
+        public String func(String str) {
+            if (str == null)
+                return f.func(null);
+            String cached = cache.get(str);
+            if (cached != null) {
+                stats.hit();
+                return cached;
+            }
+            stats.miss();
+            String value = f.func(str);
+            if (value != null)
+                cache.put(str, value);
+            return value;
+        }
+
+        public CacheStats stats() {
+            return stats;
+        }
+
+        public int size() {
+            return cache.size();
+        }
+
+        public void clear() {
+            cache.clear();
+        }
+    }
+
+}
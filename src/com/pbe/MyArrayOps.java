@@ -1,15 +1,88 @@
 package com.pbe;
 
+import java.util.Objects;
+import java.util.stream.IntStream;
+
 // A non generic class that contains generic method countMatching()
 public class MyArrayOps {
 
+    // Arrays of at least this length are counted in parallel, in chunks of PARALLEL_CHUNK elements
+    static final int PARALLEL_THRESHOLD = 1 << 16;
+    static final int PARALLEL_CHUNK = 1 << 14;
+
     // Static method countMatching() returns the number of items in an array
     // that are equal to a specified value.
+    // Note: equality is tested with equals(), not ==.
+    // With == two Integer objects holding the same value above 127 (outside the Integer cache),
+    // or two equal Strings that are not interned, would not be counted as a match.
     static <T> int countMatching(T[] vals, T v) {
+        if (vals.length >= PARALLEL_THRESHOLD)
+            return parallelCount(vals.length, (from, to) -> countRange(vals, v, from, to));
+        return countRange(vals, v, 0, vals.length);
+    }
+
+    // Primitive specializations: no boxing, and a simple loop the JIT can vectorize
+    static int countMatching(int[] vals, int v) {
+        if (vals.length >= PARALLEL_THRESHOLD)
+            return parallelCount(vals.length, (from, to) -> countRange(vals, v, from, to));
+        return countRange(vals, v, 0, vals.length);
+    }
+
+    static int countMatching(long[] vals, long v) {
+        if (vals.length >= PARALLEL_THRESHOLD)
+            return parallelCount(vals.length, (from, to) -> countRange(vals, v, from, to));
+        return countRange(vals, v, 0, vals.length);
+    }
+
+    // Doubles are compared like Double.equals(): NaN matches NaN, and 0.0 does not match -0.0
+    // This gives the same answer as countMatching() on the boxed Double[] version of the array
+    static int countMatching(double[] vals, double v) {
+        if (vals.length >= PARALLEL_THRESHOLD)
+            return parallelCount(vals.length, (from, to) -> countRange(vals, v, from, to));
+        return countRange(vals, v, 0, vals.length);
+    }
+
+    private static <T> int countRange(T[] vals, T v, int from, int to) {
+        int count = 0;
+        for (int i = from; i < to; i++)
+            if (Objects.equals(vals[i], v)) count++;
+        return count;
+    }
+
+    private static int countRange(int[] vals, int v, int from, int to) {
         int count = 0;
-        for (int i=0; i < vals.length; i++)
-            if(vals[i] == v) count++;
+        for (int i = from; i < to; i++)
+            count += vals[i] == v ? 1 : 0;
         return count;
     }
 
-}
\ No newline at end of file
+    private static int countRange(long[] vals, long v, int from, int to) {
+        int count = 0;
+        for (int i = from; i < to; i++)
+            count += vals[i] == v ? 1 : 0;
+        return count;
+    }
+
+    private static int countRange(double[] vals, double v, int from, int to) {
+        long bits = Double.doubleToLongBits(v);
+        int count = 0;
+        for (int i = from; i < to; i++)
+            count += Double.doubleToLongBits(vals[i]) == bits ? 1 : 0;
+        return count;
+    }
+
+    // Functional interface for counting a chunk [from, to) of an array
+    private interface RangeCount {
+        int count(int from, int to);
+    }
+
+    // Counts fixed size chunks on the common fork join pool and adds up the results
+    private static int parallelCount(int length, RangeCount rc) {
+        int chunks = (length + PARALLEL_CHUNK - 1) / PARALLEL_CHUNK;
+        return IntStream.range(0, chunks)
+                .parallel()
+                .map(c -> rc.count(c * PARALLEL_CHUNK, Math.min(length, (c + 1) * PARALLEL_CHUNK)))
+                .sum();
+    }
+
+}
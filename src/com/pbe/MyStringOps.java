@@ -3,11 +3,9 @@ package com.pbe;
 public class MyStringOps {
 
     // Instance method strReverse() that accepts a string, reverses it, and returns it as String
+    // Delegates to the same engine as StaticMyStringOps.strReverse()
     String strReverse(String str) {
-        String result = "";
-        for (int i = str.length()-1; i >= 0; i--)
-            result += str.charAt(i);
-        return result;
+        return StringReverser.strReverse(str);
     }
 
 }
@@ -0,0 +1,23 @@
+package com.pbe;
+
+// Non throwing counterpart of NumFunc, for functions that can fail, such as an exact factorial that overflows
+public interface NumTryFunc {
+
+    // Returns the status (NumericResult.OK, OVERFLOW or DOMAIN); on OK the value is in out
+    int tryFunc(int n, NumericResult out);
+
+    // NumFunc that throws where tryFunc() reports a failure:
+    // an IllegalArgumentException for DOMAIN, an ArithmeticException otherwise
+    default NumFunc throwing() {
+        return (n) -> {
+            NumericResult out = new NumericResult();
+            int status = tryFunc(n, out);
+            if (status == NumericResult.DOMAIN)
+                throw new IllegalArgumentException("argument outside the domain: " + n);
+            if (status != NumericResult.OK)
+                throw new ArithmeticException(status == NumericResult.OVERFLOW ? "integer overflow" : NumericResult.statusName(status));
+            return out.intValue();
+        };
+    }
+
+}
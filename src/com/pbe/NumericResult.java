@@ -0,0 +1,78 @@
+package com.pbe;
+
+import java.util.OptionalDouble;
+
+// Reusable out-parameter for the non throwing numeric functions (DblNumericArrayTryFunc, NumTryFunc)
+// A function writes its value and a status code here and also returns the status code, so a caller can write:
+// if (avg.tryFunc(values, result) == NumericResult.OK) use(result.doubleValue());
+// One instance can be reused for any number of calls, so the hot path allocates nothing.
+// NOTE: not thread safe; use one instance per thread.
+public final class NumericResult {
+
+    public static final int OK = 0;
+    public static final int EMPTY = 1;    // the input array was empty
+    public static final int OVERFLOW = 2; // the exact result does not fit in the result type
+    public static final int DOMAIN = 3;   // the argument is outside the domain of the function (such as a negative factorial)
+
+    private int status = EMPTY;
+    private double doubleValue;
+    private int intValue;
+
+    int ok(double value) {
+        status = OK;
+        doubleValue = value;
+        intValue = 0;
+        return OK;
+    }
+
+    int ok(int value) {
+        status = OK;
+        intValue = value;
+        doubleValue = value;
+        return OK;
+    }
+
+    int fail(int status) {
+        this.status = status;
+        doubleValue = Double.NaN;
+        intValue = 0;
+        return status;
+    }
+
+    public int status() {
+        return status;
+    }
+
+    public boolean isOk() {
+        return status == OK;
+    }
+
+    public double doubleValue() {
+        return doubleValue;
+    }
+
+    public int intValue() {
+        return intValue;
+    }
+
+    public OptionalDouble toOptional() {
+        return status == OK ? OptionalDouble.of(doubleValue) : OptionalDouble.empty();
+    }
+
+    @Override
+    public String toString() {
+        return status == OK ? "NumericResult[" + doubleValue + "]"
+                : "NumericResult[" + statusName(status) + "]";
+    }
+
+    static String statusName(int status) {
+        switch (status) {
+            case OK: return "OK";
+            case EMPTY: return "EMPTY";
+            case OVERFLOW: return "OVERFLOW";
+            case DOMAIN: return "DOMAIN";
+            default: return "status " + status;
+        }
+    }
+
+}
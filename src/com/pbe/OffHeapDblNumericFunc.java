@@ -0,0 +1,13 @@
+package com.pbe;
+
+// Off-heap counterpart of DblNumericArrayFunc, operating on OffHeapDoubles instead of a double[]
+public interface OffHeapDblNumericFunc {
+
+    double func(OffHeapDoubles n) throws EmptyArrayException;
+
+    // Use this function on a double[]; the array is viewed, not copied
+    default DblNumericArrayFunc onArrays() {
+        return (n) -> func(OffHeapDoubles.wrap(n));
+    }
+
+}
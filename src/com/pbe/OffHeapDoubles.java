@@ -0,0 +1,121 @@
+package com.pbe;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// A sequence of doubles stored outside the Java heap, longer than a Java array can be (more than 2^31 elements)
+// The doubles are kept in chunks of CHUNK elements; every chunk is a DoubleBuffer view of
+// - a direct ByteBuffer (allocate), which the GC does not scan or copy, or
+// - a memory mapped region of a file (map), so the data is paged in by the OS and never needs to fit in memory.
+// wrap() views an existing double[] the same way, without copying it.
+public class OffHeapDoubles {
+
+    // Doubles per chunk: 2^27 doubles is 1GB, well below the 2GB limit of a single buffer or mapping
+    static final int CHUNK = 1 << 27;
+
+    private final DoubleBuffer[] chunks;
+    private final long length;
+
+    private OffHeapDoubles(DoubleBuffer[] chunks, long length) {
+        this.chunks = chunks;
+        this.length = length;
+    }
+
+    // Allocate length doubles off-heap, initialized to 0
+    public static OffHeapDoubles allocate(long length) {
+        DoubleBuffer[] chunks = new DoubleBuffer[chunkCount(length)];
+        for (int c = 0; c < chunks.length; c++) {
+            int n = (int) Math.min(CHUNK, length - (long) c * CHUNK);
+            chunks[c] = ByteBuffer.allocateDirect(n * Double.BYTES).order(ByteOrder.nativeOrder()).asDoubleBuffer();
+        }
+        return new OffHeapDoubles(chunks, length);
+    }
+
+    // Map a file of doubles in native byte order; its size must be a multiple of 8 bytes
+    // With writable set, changes through set() are written to the file
+    public static OffHeapDoubles map(Path file, boolean writable) throws IOException {
+        return map(file, writable, ByteOrder.nativeOrder());
+    }
+
+    public static OffHeapDoubles map(Path file, boolean writable, ByteOrder order) throws IOException {
+        StandardOpenOption[] options = writable
+                ? new StandardOpenOption[] { StandardOpenOption.READ, StandardOpenOption.WRITE }
+                : new StandardOpenOption[] { StandardOpenOption.READ };
+        FileChannel.MapMode mode = writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY;
+        try (FileChannel ch = FileChannel.open(file, options)) {
+            long size = ch.size();
+            if (size % Double.BYTES != 0)
+                throw new IOException("file size " + size + " is not a multiple of " + Double.BYTES + ": " + file);
+            long length = size / Double.BYTES;
+            DoubleBuffer[] chunks = new DoubleBuffer[chunkCount(length)];
+            for (int c = 0; c < chunks.length; c++) {
+                long offset = (long) c * CHUNK;
+                long n = Math.min(CHUNK, length - offset);
+                // A mapping stays valid after its channel is closed
+                chunks[c] = ch.map(mode, offset * Double.BYTES, n * Double.BYTES).order(order).asDoubleBuffer();
+            }
+            return new OffHeapDoubles(chunks, length);
+        }
+    }
+
+    // View an array without copying it (the data then stays on the heap, of course)
+    // The array is cut in CHUNK sized views like any other sequence, so index i is found in the same chunk
+    public static OffHeapDoubles wrap(double[] array) {
+        DoubleBuffer[] chunks = new DoubleBuffer[chunkCount(array.length)];
+        for (int c = 0; c < chunks.length; c++) {
+            int offset = c * CHUNK;
+            int n = Math.min(CHUNK, array.length - offset);
+            // slice() makes index 0 of the view the element at offset
+            chunks[c] = DoubleBuffer.wrap(array, offset, n).slice();
+        }
+        return new OffHeapDoubles(chunks, array.length);
+    }
+
+    public long length() {
+        return length;
+    }
+
+    public double get(long i) {
+        checkIndex(i);
+        return chunks[(int) (i / CHUNK)].get((int) (i % CHUNK));
+    }
+
+    public void set(long i, double v) {
+        checkIndex(i);
+        chunks[(int) (i / CHUNK)].put((int) (i % CHUNK), v);
+    }
+
+    public int chunkCount() {
+        return chunks.length;
+    }
+
+    // A chunk as an independent view (its own position and limit)
+    public DoubleBuffer chunk(int c) {
+        return chunks[c].duplicate();
+    }
+
+    // Internal access to a chunk without creating a view; only absolute get() may be used on it
+    DoubleBuffer chunkDirect(int c) {
+        return chunks[c];
+    }
+
+    private void checkIndex(long i) {
+        if (i < 0 || i >= length)
+            throw new IndexOutOfBoundsException("index " + i + " out of range [0, " + length + ")");
+    }
+
+    private static int chunkCount(long length) {
+        if (length < 0)
+            throw new IllegalArgumentException("length must not be negative: " + length);
+        long n = (length + CHUNK - 1) / CHUNK;
+        if (n > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("length too large: " + length);
+        return (int) n;
+    }
+
+}
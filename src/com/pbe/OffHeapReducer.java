@@ -0,0 +1,39 @@
+package com.pbe;
+
+import java.nio.DoubleBuffer;
+import java.util.stream.IntStream;
+
+// Sum and mean of OffHeapDoubles, with the same semantics as DoubleReducer:
+// - func() is the mean, and throws an EmptyArrayException for an empty sequence, like the 'avg' lambda in Main
+// - Neumaier compensated summation, with an infinite sum staying infinite
+// - fixed size blocks, reduced in parallel and combined in block order, so the result does not depend on the threads
+// Both reducers use CompensatedBlocks with the same block size, so for the same values they give the same result,
+// bit for bit: onArrays().func(d) equals new DoubleReducer().func(d).
+// Blocks never cross a chunk boundary (CHUNK is a multiple of BLOCK), so a block is a plain loop over one buffer.
+public class OffHeapReducer implements OffHeapDblNumericFunc {
+
+    static final int BLOCK = CompensatedBlocks.BLOCK;
+
+    public double func(OffHeapDoubles n) throws EmptyArrayException {
+        return mean(n);
+    }
+
+    public double mean(OffHeapDoubles n) throws EmptyArrayException {
+        if (n.length() == 0)
+            throw EmptyArrayException.of();
+        return sum(n) / n.length();
+    }
+
+    // Compensated sum; 0 for an empty sequence
+    public double sum(OffHeapDoubles n) {
+        CompensatedBlocks b = new CompensatedBlocks(CompensatedBlocks.blockCount(n.length()));
+        int blocksPerChunk = OffHeapDoubles.CHUNK / BLOCK;
+        IntStream.range(0, b.count).parallel().forEach(i -> {
+            DoubleBuffer buf = n.chunkDirect(i / blocksPerChunk);
+            int from = (i % blocksPerChunk) * BLOCK;
+            b.reduce(buf, from, Math.min(from + BLOCK, buf.limit()), i, Double.NaN);
+        });
+        return b.sum();
+    }
+
+}
@@ -0,0 +1,199 @@
+package com.pbe;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+// Counts, per named MyNumTest predicate, how many values matched, for values arriving from many threads
+// Counting uses LongAdders: a LongAdder spreads its updates over cells padded to separate cache lines,
+// one per contending thread, so producers do not fight over a single counter the way they do with an AtomicLong
+// or a synchronized map. Reading sums the cells.
+//
+// Besides running totals, counts are kept in time buckets of a fixed length, in a ring of 'buckets' slots:
+// - tumbling(windowBuckets): the last complete window, windows aligned at multiples of windowBuckets buckets
+// - sliding(windowBuckets): the last windowBuckets buckets, including the current one
+// A bucket can only be read while its slot has not been reused, i.e. while it lies less than 'buckets' buckets
+// behind the current one. The last complete tumbling window can start up to 2 * windowBuckets - 1 buckets back,
+// so tumbling windows can be at most buckets / 2 long; sliding windows at most buckets.
+// Snapshots are taken while producers keep running. A value counted exactly when its bucket is recycled
+// can end up in the old bucket; the totals are always exact.
+//
+// acceptAll(int[]) evaluates every predicate over a whole chunk with PredicateBatch (using its kernels for
+// known predicate shapes) and adds one count per predicate, instead of one update per value per predicate.
+public class PredicateAggregator {
+
+    // Counts over a period of time
+    public static final class Snapshot {
+        public final long fromMillis; // inclusive
+        public final long toMillis;   // exclusive
+        public final long values;
+        private final String[] names;
+        private final long[] counts;
+
+        Snapshot(long fromMillis, long toMillis, long values, String[] names, long[] counts) {
+            this.fromMillis = fromMillis;
+            this.toMillis = toMillis;
+            this.values = values;
+            this.names = names;
+            this.counts = counts;
+        }
+
+        public long count(String name) {
+            for (int i = 0; i < names.length; i++)
+                if (names[i].equals(name))
+                    return counts[i];
+            throw new IllegalArgumentException("unknown predicate: " + name);
+        }
+
+        public Map<String, Long> asMap() {
+            Map<String, Long> m = new LinkedHashMap<>();
+            for (int i = 0; i < names.length; i++)
+                m.put(names[i], counts[i]);
+            return m;
+        }
+
+        @Override
+        public String toString() {
+            return "Snapshot[" + fromMillis + ".." + toMillis + ", values=" + values + ", " + asMap() + "]";
+        }
+    }
+
+    // Counts of one time bucket; replaced by a new bucket when its slot in the ring is reused
+    private static final class Bucket {
+        final long epoch; // bucket number: time / bucketMillis
+        final LongAdder values = new LongAdder();
+        final LongAdder[] counts;
+
+        Bucket(long epoch, int predicates) {
+            this.epoch = epoch;
+            counts = new LongAdder[predicates];
+            for (int i = 0; i < predicates; i++)
+                counts[i] = new LongAdder();
+        }
+    }
+
+    private final String[] names;
+    private final MyNumTest[] predicates;
+    private final LongAdder totalValues = new LongAdder();
+    private final LongAdder[] totals;
+    private final long bucketMillis;
+    private final AtomicReferenceArray<Bucket> ring;
+    private final LongSupplier clock;
+
+    // predicates: name -> predicate, in reporting order
+    public PredicateAggregator(Map<String, MyNumTest> predicates, long bucketMillis, int buckets) {
+        this(predicates, bucketMillis, buckets, System::currentTimeMillis);
+    }
+
+    PredicateAggregator(Map<String, MyNumTest> predicates, long bucketMillis, int buckets, LongSupplier clock) {
+        if (bucketMillis <= 0 || buckets <= 0)
+            throw new IllegalArgumentException("bucketMillis and buckets must be positive");
+        this.names = predicates.keySet().toArray(new String[0]);
+        this.predicates = predicates.values().toArray(new MyNumTest[0]);
+        this.totals = new LongAdder[names.length];
+        for (int i = 0; i < totals.length; i++)
+            totals[i] = new LongAdder();
+        this.bucketMillis = bucketMillis;
+        this.ring = new AtomicReferenceArray<>(buckets);
+        this.clock = clock;
+    }
+
+    public void accept(int value) {
+        Bucket b = current();
+        for (int i = 0; i < predicates.length; i++) {
+            if (predicates[i].test(value)) {
+                totals[i].increment();
+                b.counts[i].increment();
+            }
+        }
+        totalValues.increment();
+        b.values.increment();
+    }
+
+    public void acceptAll(int[] chunk) {
+        acceptAll(chunk, 0, chunk.length);
+    }
+
+    // Ingest chunk[from, to)
+    public void acceptAll(int[] chunk, int from, int to) {
+        int[] values = from == 0 && to == chunk.length ? chunk : Arrays.copyOfRange(chunk, from, to);
+        Bucket b = current();
+        for (int i = 0; i < predicates.length; i++) {
+            int matches = PredicateBatch.evaluate(predicates[i], values).cardinality();
+            if (matches > 0) {
+                totals[i].add(matches);
+                b.counts[i].add(matches);
+            }
+        }
+        totalValues.add(values.length);
+        b.values.add(values.length);
+    }
+
+    // Running totals since the aggregator was created
+    public Snapshot totals() {
+        long[] counts = new long[totals.length];
+        for (int i = 0; i < counts.length; i++)
+            counts[i] = totals[i].sum();
+        return new Snapshot(Long.MIN_VALUE, clock.getAsLong(), totalValues.sum(), names, counts);
+    }
+
+    // The last windowBuckets buckets, up to and including the current (still running) bucket
+    public Snapshot sliding(int windowBuckets) {
+        if (windowBuckets <= 0 || windowBuckets > ring.length())
+            throw new IllegalArgumentException("sliding window of " + windowBuckets + " buckets needs 1 to "
+                    + ring.length() + " buckets");
+        long now = clock.getAsLong() / bucketMillis;
+        return window(now - windowBuckets + 1, now + 1, now);
+    }
+
+    // The last complete window of windowBuckets buckets, with windows starting at multiples of windowBuckets
+    public Snapshot tumbling(int windowBuckets) {
+        if (windowBuckets <= 0 || 2L * windowBuckets > ring.length())
+            throw new IllegalArgumentException("tumbling window of " + windowBuckets + " buckets needs 1 to "
+                    + ring.length() / 2 + " buckets (half the ring)");
+        long now = clock.getAsLong() / bucketMillis;
+        long start = Math.floorDiv(now, windowBuckets) * windowBuckets - windowBuckets;
+        return window(start, start + windowBuckets, now);
+    }
+
+    // Sum of the buckets with epoch in [from, to), read at bucket 'now'
+    private Snapshot window(long from, long to, long now) {
+        // Buckets 'ring.length()' or more behind now may already have been replaced by newer ones
+        if (now - from >= ring.length())
+            throw new IllegalArgumentException("bucket " + from + " is too old for a ring of " + ring.length()
+                    + " buckets at bucket " + now);
+        long[] counts = new long[names.length];
+        long values = 0;
+        for (long e = from; e < to; e++) {
+            Bucket b = ring.get(slot(e));
+            if (b == null || b.epoch != e)
+                continue; // nothing was counted in that bucket
+            values += b.values.sum();
+            for (int i = 0; i < counts.length; i++)
+                counts[i] += b.counts[i].sum();
+        }
+        return new Snapshot(from * bucketMillis, to * bucketMillis, values, names, counts);
+    }
+
+    // The bucket for the current time, installing a fresh one when the slot still holds an older bucket
+    private Bucket current() {
+        long epoch = clock.getAsLong() / bucketMillis;
+        int slot = slot(epoch);
+        while (true) {
+            Bucket b = ring.get(slot);
+            if (b != null && b.epoch >= epoch)
+                return b; // the current bucket (or, for a producer with a stale clock reading, a newer one)
+            Bucket fresh = new Bucket(epoch, predicates.length);
+            if (ring.compareAndSet(slot, b, fresh))
+                return fresh;
+        }
+    }
+
+    private int slot(long epoch) {
+        return (int) Math.floorMod(epoch, (long) ring.length());
+    }
+
+}
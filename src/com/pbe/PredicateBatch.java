@@ -0,0 +1,187 @@
+package com.pbe;
+
+// Batch evaluation of MyNumTest and MyNumTest2 predicates over int arrays
+// Instead of calling test() once per value, a whole array is evaluated at once and the result is returned as a BitMask.
+//
+// Common predicate shapes have a specialized kernel:
+// - moduloEquals(d, r): n % d == r, such as isEven = moduloEquals(2, 0)
+// - range(lo, hi): lo <= n <= hi, such as isPostive = atLeast(0)
+// - isFactor(): (n % d) == 0 over two arrays (also used for a FactorTable)
+// The kernels are plain counted loops without branches or calls in the body.
+// When the jdk.incubator.vector module is present (java --add-modules jdk.incubator.vector), the compare based
+// kernels (range, and modulo by a power of two) run as Vector API code from VectorKernels, one SIMD compare
+// per vector of values. Otherwise, and for the division based kernels, they are branch free scalar loops:
+// C2 does not vectorize the bit packing reduction, nor integer division.
+// -Dcom.pbe.vector=false forces the scalar kernels.
+// Any other predicate (such as a lambda) is still evaluated correctly by the generic path,
+// which calls test() per element but writes the result in the same compact form.
+public class PredicateBatch {
+
+    static final boolean VECTOR = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()
+            && !"false".equals(System.getProperty("com.pbe.vector"));
+
+    private PredicateBatch() {
+    }
+
+    // Predicate shape n % divisor == remainder
+    static final class ModuloEquals implements MyNumTest {
+        final int divisor;
+        final int remainder;
+
+        ModuloEquals(int divisor, int remainder) {
+            if (divisor == 0)
+                throw new IllegalArgumentException("divisor must not be 0");
+            this.divisor = divisor;
+            this.remainder = remainder;
+        }
+
+        public boolean test(int n) {
+            return n % divisor == remainder;
+        }
+    }
+
+    // Predicate shape lo <= n <= hi (both bounds inclusive)
+    static final class Range implements MyNumTest {
+        final int lo;
+        final int hi;
+
+        Range(int lo, int hi) {
+            if (lo > hi)
+                throw new IllegalArgumentException("empty range: " + lo + " > " + hi);
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        public boolean test(int n) {
+            return n >= lo && n <= hi;
+        }
+    }
+
+    // Predicate shape (n % d) == 0
+    static final class Factor implements MyNumTest2 {
+        static final Factor INSTANCE = new Factor();
+
+        public boolean test(int n, int d) {
+            return (n % d) == 0;
+        }
+    }
+
+    public static MyNumTest moduloEquals(int divisor, int remainder) {
+        return new ModuloEquals(divisor, remainder);
+    }
+
+    public static MyNumTest range(int lo, int hi) {
+        return new Range(lo, hi);
+    }
+
+    public static MyNumTest atLeast(int lo) {
+        return new Range(lo, Integer.MAX_VALUE);
+    }
+
+    public static MyNumTest2 isFactor() {
+        return Factor.INSTANCE;
+    }
+
+    // Evaluate a predicate for every element of values
+    public static BitMask evaluate(MyNumTest p, int[] values) {
+        BitMask mask = new BitMask(values.length);
+        long[] words = mask.words();
+        if (p instanceof ModuloEquals) {
+            ModuloEquals m = (ModuloEquals) p;
+            moduloKernel(values, m.divisor, m.remainder, words);
+        } else if (p instanceof Range) {
+            Range r = (Range) p;
+            rangeKernel(values, r.lo, r.hi, words);
+        } else {
+            for (int i = 0; i < values.length; i++)
+                if (p.test(values[i]))
+                    words[i >>> 6] |= 1L << i;
+        }
+        return mask;
+    }
+
+    // Evaluate a two argument predicate pairwise over n[i] and d[i]
+    public static BitMask evaluate(MyNumTest2 p, int[] n, int[] d) {
+        if (n.length != d.length)
+            throw new IllegalArgumentException("array lengths differ: " + n.length + " != " + d.length);
+        BitMask mask = new BitMask(n.length);
+        long[] words = mask.words();
+        if (p instanceof Factor || p instanceof FactorTable) {
+            factorKernel(n, d, words);
+        } else {
+            for (int i = 0; i < n.length; i++)
+                if (p.test(n[i], d[i]))
+                    words[i >>> 6] |= 1L << i;
+        }
+        return mask;
+    }
+
+    // Evaluate a two argument predicate over n[i] with a fixed second argument
+    public static BitMask evaluate(MyNumTest2 p, int[] n, int d) {
+        if (p instanceof Factor || p instanceof FactorTable) {
+            if (d == 0)
+                throw new ArithmeticException("/ by zero");
+            return evaluate(new ModuloEquals(d, 0), n);
+        }
+        BitMask mask = new BitMask(n.length);
+        long[] words = mask.words();
+        for (int i = 0; i < n.length; i++)
+            if (p.test(n[i], d))
+                words[i >>> 6] |= 1L << i;
+        return mask;
+    }
+
+    // The kernels below fill one 64 bit word per block of 64 values
+    // Each bit is computed without a branch, so the inner loop can be unrolled.
+
+    private static void moduloKernel(int[] v, int divisor, int remainder, long[] words) {
+        int len = v.length;
+        if (remainder == 0 && divisor > 0 && (divisor & (divisor - 1)) == 0) {
+            // Power of two divisor: n % d == 0 is the same as (n & (d - 1)) == 0, also for negative n
+            int m = divisor - 1;
+            int from = VECTOR ? VectorKernels.powerOfTwoKernel(v, divisor, words) : 0;
+            for (int base = from; base < len; base += 64) {
+                int end = Math.min(base + 64, len);
+                long word = 0;
+                for (int i = base; i < end; i++)
+                    word |= ((v[i] & m) == 0 ? 1L : 0L) << (i - base);
+                words[base >>> 6] = word;
+            }
+            return;
+        }
+        for (int base = 0; base < len; base += 64) {
+            int end = Math.min(base + 64, len);
+            long word = 0;
+            for (int i = base; i < end; i++)
+                word |= (v[i] % divisor == remainder ? 1L : 0L) << (i - base);
+            words[base >>> 6] = word;
+        }
+    }
+
+    private static void rangeKernel(int[] v, int lo, int hi, long[] words) {
+        // lo <= n <= hi is a single unsigned compare: (n - lo) <=u (hi - lo)
+        // Flipping the sign bit turns the unsigned compare into a signed one
+        int span = (hi - lo) ^ Integer.MIN_VALUE;
+        int len = v.length;
+        int from = VECTOR ? VectorKernels.rangeKernel(v, lo, hi, words) : 0;
+        for (int base = from; base < len; base += 64) {
+            int end = Math.min(base + 64, len);
+            long word = 0;
+            for (int i = base; i < end; i++)
+                word |= (((v[i] - lo) ^ Integer.MIN_VALUE) <= span ? 1L : 0L) << (i - base);
+            words[base >>> 6] = word;
+        }
+    }
+
+    private static void factorKernel(int[] n, int[] d, long[] words) {
+        int len = n.length;
+        for (int base = 0; base < len; base += 64) {
+            int end = Math.min(base + 64, len);
+            long word = 0;
+            for (int i = base; i < end; i++)
+                word |= (n[i] % d[i] == 0 ? 1L : 0L) << (i - base);
+            words[base >>> 6] = word;
+        }
+    }
+
+}
@@ -0,0 +1,98 @@
+package com.pbe;
+
+import java.nio.DoubleBuffer;
+import java.util.SplittableRandom;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+// Random number sources for MyNum and for bulk generation
+// 'myNum = () -> Math.random() * 2' shares one generator between all threads, which then contend for its seed.
+// - uniform(): a MyNum backed by ThreadLocalRandom, so every thread has its own generator and nothing is shared
+// - seeded(): a MyNum with its own SplittableRandom, giving a reproducible sequence (for use by one thread)
+// - fill(): fills a double[] or DoubleBuffer in parallel
+// - stream(): a parallel capable DoubleStream
+// Different seeds give independent streams, also for consecutive seeds such as the run number of a job.
+// fill() and stream() are reproducible: the same seed gives the same values, however the work is split over threads,
+// and stream(count, seed, scale).toArray() gives the same values as fill() of an array of count elements.
+// Both cut the output in fixed size blocks and give every block its own generator, seeded from the seed and the
+// block number only. (SplittableRandom.doubles() itself is not reproducible in parallel: its values depend on
+// how the stream happens to be split.)
+public class RandomNums {
+
+    // Values per block; also the unit of parallel work
+    static final int BLOCK = 1 << 16;
+
+    // Odd constant 2^64 / golden ratio, the step of SplittableRandom
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private RandomNums() {
+    }
+
+    // Uniform values in [0, scale), such as uniform(2) for 'Math.random() * 2'; safe for any number of threads
+    public static MyNum uniform(double scale) {
+        return () -> ThreadLocalRandom.current().nextDouble() * scale;
+    }
+
+    // Uniform values in [0, scale) from a seeded generator; reproducible, but not thread safe
+    public static MyNum seeded(long seed, double scale) {
+        SplittableRandom random = new SplittableRandom(seed);
+        return () -> random.nextDouble() * scale;
+    }
+
+    // Fill an array with uniform values in [0, scale)
+    public static void fill(double[] out, long seed, double scale) {
+        IntStream.range(0, blockCount(out.length)).parallel().forEach(b -> {
+            SplittableRandom r = generator(seed, b);
+            int to = (int) Math.min(out.length, (b + 1L) * BLOCK);
+            for (int i = b * BLOCK; i < to; i++)
+                out[i] = r.nextDouble() * scale;
+        });
+    }
+
+    // Fill the remaining part of a buffer ([position, limit)) with uniform values in [0, scale)
+    // Works for heap and direct (off-heap) buffers; the position of the buffer is not changed
+    public static void fill(DoubleBuffer out, long seed, double scale) {
+        int base = out.position();
+        int length = out.remaining();
+        IntStream.range(0, blockCount(length)).parallel().forEach(b -> {
+            SplittableRandom r = generator(seed, b);
+            int to = (int) Math.min(length, (b + 1L) * BLOCK);
+            for (int i = b * BLOCK; i < to; i++)
+                out.put(base + i, r.nextDouble() * scale);
+        });
+    }
+
+    // A stream of count uniform values in [0, scale); use .parallel() to generate on all cores (one block per task)
+    public static DoubleStream stream(long count, long seed, double scale) {
+        if (count < 0)
+            throw new IllegalArgumentException("count must not be negative: " + count);
+        long blocks = (count + BLOCK - 1) / BLOCK;
+        return LongStream.range(0, blocks)
+                .mapToObj(b -> generator(seed, b).doubles(Math.min(BLOCK, count - b * BLOCK)))
+                .flatMapToDouble(block -> block)
+                .map(d -> d * scale);
+    }
+
+    private static int blockCount(int length) {
+        return (int) ((length + (long) BLOCK - 1) / BLOCK);
+    }
+
+    // The generator of block b: depends on nothing but seed and b, so any thread can create it
+    // Seed and block number are each mixed on their own before they are combined. Combining them first
+    // (such as seed + b) would make block b of seed s the same as block b - 1 of seed s + 1.
+    // This way every (seed, block) pair starts at an unrelated point, so different seeds, including
+    // consecutive ones, give independent streams, and the blocks of one seed do not overlap in practice.
+    private static SplittableRandom generator(long seed, long b) {
+        return new SplittableRandom(mix64(seed) ^ mix64((b + 1) * GOLDEN_GAMMA));
+    }
+
+    // The 64 bit finalizer of SplitMix64 (Stafford's variant 13): every input bit affects every output bit
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+}
@@ -0,0 +1,398 @@
+package com.pbe;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Compiles rules given as text, such as "n % 2 == 0" or "n >= 0", into MyNumTest, MyNumTest2 or NumFunc instances
+// The rule is parsed and translated into the bytecode of a small class that implements the interface directly.
+// That class is loaded as a hidden class (MethodHandles.Lookup.defineHiddenClass), so once the JIT has compiled it,
+// a rule runs like the equivalent hand written lambda: there is no interpreter left at run time.
+//
+// Grammar (usual Java precedence and meaning, all arithmetic in int):
+// expr    := or
+// or      := and ('||' and)*
+// and     := compare ('&&' compare)*
+// compare := sum (('==' | '!=' | '<' | '<=' | '>' | '>=') sum)?
+// sum     := product (('+' | '-') product)*
+// product := unary (('*' | '/' | '%') unary)*
+// unary   := '-' unary | '!' unary | primary
+// primary := integer | 'true' | 'false' | variable | '(' expr ')'
+// The variables are n for MyNumTest and NumFunc, and n and d for MyNumTest2.
+// && and || short circuit, and division by zero throws an ArithmeticException, both exactly like in Java.
+//
+// Compiled rules are cached by their text. A hidden class is not kept alive by its class loader,
+// so after invalidate() or clear() a class is unloaded as soon as no instance of the rule is referenced anymore.
+public class RuleCompiler {
+
+    // The interfaces a rule can be compiled to
+    enum Target {
+        MY_NUM_TEST("com/pbe/MyNumTest", "test", "(I)Z", true, "n"),
+        MY_NUM_TEST2("com/pbe/MyNumTest2", "test", "(II)Z", true, "n", "d"),
+        NUM_FUNC("com/pbe/NumFunc", "func", "(I)I", false, "n");
+
+        final String interfaceName;
+        final String method;
+        final String descriptor;
+        final boolean booleanResult;
+        final String[] variables;
+
+        Target(String interfaceName, String method, String descriptor, boolean booleanResult, String... variables) {
+            this.interfaceName = interfaceName;
+            this.method = method;
+            this.descriptor = descriptor;
+            this.booleanResult = booleanResult;
+            this.variables = variables;
+        }
+    }
+
+    private static final ConcurrentHashMap<String, Object> CACHE = new ConcurrentHashMap<>();
+
+    private RuleCompiler() {
+    }
+
+    public static MyNumTest compileTest(String rule) {
+        return (MyNumTest) compile(rule, Target.MY_NUM_TEST);
+    }
+
+    public static MyNumTest2 compileTest2(String rule) {
+        return (MyNumTest2) compile(rule, Target.MY_NUM_TEST2);
+    }
+
+    public static NumFunc compileNumFunc(String rule) {
+        return (NumFunc) compile(rule, Target.NUM_FUNC);
+    }
+
+    // Drop a rule (for all targets) from the cache, for example after it was changed in the configuration
+    public static void invalidate(String rule) {
+        for (Target t : Target.values())
+            CACHE.remove(t + ":" + rule);
+    }
+
+    public static void clear() {
+        CACHE.clear();
+    }
+
+    public static int cachedCount() {
+        return CACHE.size();
+    }
+
+    private static Object compile(String rule, Target target) {
+        return CACHE.computeIfAbsent(target + ":" + rule, k -> define(rule, target));
+    }
+
+    private static Object define(String rule, Target target) {
+        Node root = new Parser(rule, target.variables).parse();
+        if (root.bool != target.booleanResult)
+            throw new IllegalArgumentException("rule must be " + (target.booleanResult ? "a condition" : "a number") +
+                    ": " + rule);
+
+        BytecodeWriter w = new BytecodeWriter();
+        BytecodeWriter.Code code = w.newCode();
+        root.emit(code);
+        code.op(BytecodeWriter.IRETURN, -1);
+        byte[] bytes = w.writeClass("com/pbe/Rule", target.interfaceName, target.method, target.descriptor,
+                target.variables.length, code);
+        try {
+            MethodHandles.Lookup rules = MethodHandles.lookup().defineHiddenClass(bytes, true);
+            return rules.findConstructor(rules.lookupClass(), MethodType.methodType(void.class)).invoke();
+        } catch (Throwable e) {
+            throw new IllegalStateException("could not load compiled rule: " + rule, e);
+        }
+    }
+
+    // Syntax tree; bool tells whether a node is a condition (0 or 1 in bytecode) or a number
+
+    private abstract static class Node {
+        final boolean bool;
+
+        Node(boolean bool) {
+            this.bool = bool;
+        }
+
+        // Emit code that leaves the value of the node on the stack
+        abstract void emit(BytecodeWriter.Code c);
+    }
+
+    private static final class Constant extends Node {
+        final int value;
+
+        Constant(int value, boolean bool) {
+            super(bool);
+            this.value = value;
+        }
+
+        void emit(BytecodeWriter.Code c) {
+            c.iconst(value);
+        }
+    }
+
+    private static final class Variable extends Node {
+        final int slot;
+
+        Variable(int slot) {
+            super(false);
+            this.slot = slot;
+        }
+
+        void emit(BytecodeWriter.Code c) {
+            c.iload(slot);
+        }
+    }
+
+    private static final class Unary extends Node {
+        final int opcode; // INEG, or IXOR for !
+        final Node operand;
+
+        Unary(int opcode, Node operand) {
+            super(operand.bool);
+            this.opcode = opcode;
+            this.operand = operand;
+        }
+
+        void emit(BytecodeWriter.Code c) {
+            operand.emit(c);
+            if (opcode == BytecodeWriter.IXOR)
+                c.iconst(1);
+            c.op(opcode, opcode == BytecodeWriter.IXOR ? -1 : 0);
+        }
+    }
+
+    private static final class Arithmetic extends Node {
+        final int opcode;
+        final Node left, right;
+
+        Arithmetic(int opcode, Node left, Node right) {
+            super(false);
+            this.opcode = opcode;
+            this.left = left;
+            this.right = right;
+        }
+
+        void emit(BytecodeWriter.Code c) {
+            left.emit(c);
+            right.emit(c);
+            c.op(opcode, -1);
+        }
+    }
+
+    // left <op> right, as: if_icmp<op> TRUE; iconst_0; goto END; TRUE: iconst_1; END:
+    private static final class Compare extends Node {
+        final int opcode;
+        final Node left, right;
+
+        Compare(int opcode, Node left, Node right) {
+            super(true);
+            this.opcode = opcode;
+            this.left = left;
+            this.right = right;
+        }
+
+        void emit(BytecodeWriter.Code c) {
+            left.emit(c);
+            right.emit(c);
+            int base = c.depth() - 2;
+            int isTrue = c.jump(opcode, -2);
+            c.iconst(0);
+            int end = c.jump(BytecodeWriter.GOTO, 0);
+            c.bind(isTrue, base);
+            c.iconst(1);
+            c.bind(end, base + 1);
+        }
+    }
+
+    // left && right: if left is 0 the result is 0 without evaluating right; || likewise with 1
+    private static final class Logical extends Node {
+        final boolean and;
+        final Node left, right;
+
+        Logical(boolean and, Node left, Node right) {
+            super(true);
+            this.and = and;
+            this.left = left;
+            this.right = right;
+        }
+
+        void emit(BytecodeWriter.Code c) {
+            left.emit(c);
+            int base = c.depth() - 1;
+            int shortCut = c.jump(and ? BytecodeWriter.IFEQ : BytecodeWriter.IFNE, -1);
+            right.emit(c);
+            int end = c.jump(BytecodeWriter.GOTO, 0);
+            c.bind(shortCut, base);
+            c.iconst(and ? 0 : 1);
+            c.bind(end, base + 1);
+        }
+    }
+
+    // Recursive descent parser for the grammar above
+    private static final class Parser {
+        private final String src;
+        private final String[] variables;
+        private int pos;
+
+        Parser(String src, String[] variables) {
+            this.src = src;
+            this.variables = variables;
+        }
+
+        Node parse() {
+            Node n = or();
+            skipSpace();
+            if (pos < src.length())
+                throw error("unexpected '" + src.charAt(pos) + "'");
+            return n;
+        }
+
+        private Node or() {
+            Node n = and();
+            while (accept("||"))
+                n = new Logical(false, condition(n, "||"), condition(and(), "||"));
+            return n;
+        }
+
+        private Node and() {
+            Node n = compare();
+            while (accept("&&"))
+                n = new Logical(true, condition(n, "&&"), condition(compare(), "&&"));
+            return n;
+        }
+
+        private Node compare() {
+            Node n = sum();
+            int opcode;
+            if (accept("=="))
+                opcode = BytecodeWriter.IF_ICMPEQ;
+            else if (accept("!="))
+                opcode = BytecodeWriter.IF_ICMPNE;
+            else if (accept("<="))
+                opcode = BytecodeWriter.IF_ICMPLE;
+            else if (accept(">="))
+                opcode = BytecodeWriter.IF_ICMPGE;
+            else if (accept("<"))
+                opcode = BytecodeWriter.IF_ICMPLT;
+            else if (accept(">"))
+                opcode = BytecodeWriter.IF_ICMPGT;
+            else
+                return n;
+            Node right = sum();
+            // == and != also compare two conditions; the ordering operators only numbers
+            boolean equality = opcode == BytecodeWriter.IF_ICMPEQ || opcode == BytecodeWriter.IF_ICMPNE;
+            if (n.bool != right.bool || (n.bool && !equality))
+                throw error("cannot compare a condition with a number");
+            return new Compare(opcode, n, right);
+        }
+
+        private Node sum() {
+            Node n = product();
+            while (true) {
+                if (accept("+"))
+                    n = new Arithmetic(BytecodeWriter.IADD, number(n, "+"), number(product(), "+"));
+                else if (accept("-"))
+                    n = new Arithmetic(BytecodeWriter.ISUB, number(n, "-"), number(product(), "-"));
+                else
+                    return n;
+            }
+        }
+
+        private Node product() {
+            Node n = unary();
+            while (true) {
+                if (accept("*"))
+                    n = new Arithmetic(BytecodeWriter.IMUL, number(n, "*"), number(unary(), "*"));
+                else if (accept("/"))
+                    n = new Arithmetic(BytecodeWriter.IDIV, number(n, "/"), number(unary(), "/"));
+                else if (accept("%"))
+                    n = new Arithmetic(BytecodeWriter.IREM, number(n, "%"), number(unary(), "%"));
+                else
+                    return n;
+            }
+        }
+
+        private Node unary() {
+            skipSpace();
+            if (peek() == '-' && !isDigit(pos + 1)) {
+                pos++;
+                return new Unary(BytecodeWriter.INEG, number(unary(), "-"));
+            }
+            if (peek() == '!' && !src.startsWith("!=", pos)) {
+                pos++;
+                return new Unary(BytecodeWriter.IXOR, condition(unary(), "!"));
+            }
+            return primary();
+        }
+
+        private Node primary() {
+            skipSpace();
+            if (accept("(")) {
+                Node n = or();
+                if (!accept(")"))
+                    throw error("')' expected");
+                return n;
+            }
+            int start = pos;
+            if (peek() == '-' || isDigit(pos)) {
+                pos++;
+                while (isDigit(pos))
+                    pos++;
+                try {
+                    return new Constant(Integer.parseInt(src.substring(start, pos)), false);
+                } catch (NumberFormatException e) {
+                    throw error("number out of int range: " + src.substring(start, pos));
+                }
+            }
+            while (pos < src.length() && Character.isJavaIdentifierPart(src.charAt(pos)))
+                pos++;
+            String name = src.substring(start, pos);
+            if (name.isEmpty())
+                throw error(pos < src.length() ? "unexpected '" + src.charAt(pos) + "'" : "unexpected end of rule");
+            if (name.equals("true") || name.equals("false"))
+                return new Constant(name.equals("true") ? 1 : 0, true);
+            for (int i = 0; i < variables.length; i++)
+                if (variables[i].equals(name))
+                    return new Variable(i + 1); // slot 0 is 'this'
+            throw error("unknown variable '" + name + "'");
+        }
+
+        private Node condition(Node n, String op) {
+            if (!n.bool)
+                throw error("'" + op + "' needs a condition, not a number");
+            return n;
+        }
+
+        private Node number(Node n, String op) {
+            if (n.bool)
+                throw error("'" + op + "' needs a number, not a condition");
+            return n;
+        }
+
+        private boolean accept(String token) {
+            skipSpace();
+            if (!src.startsWith(token, pos))
+                return false;
+            // Do not take '<' from '<=' or '>' from '>='
+            if (token.length() == 1 && "<>".indexOf(token.charAt(0)) >= 0 && src.startsWith("=", pos + 1))
+                return false;
+            pos += token.length();
+            return true;
+        }
+
+        private char peek() {
+            return pos < src.length() ? src.charAt(pos) : '\0';
+        }
+
+        private boolean isDigit(int i) {
+            return i < src.length() && Character.isDigit(src.charAt(i));
+        }
+
+        private void skipSpace() {
+            while (pos < src.length() && Character.isWhitespace(src.charAt(pos)))
+                pos++;
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at position " + pos + " in rule: " + src);
+        }
+    }
+
+}
@@ -3,11 +3,10 @@ package com.pbe;
 public class StaticMyStringOps {
 
     // Static method strReverse() that accepts a string, reverses it, and returns it as String
+    // The work is done by StringReverser, which reverses in a single pass over a reused buffer
+    // (instead of 'result += str.charAt(i)', which creates a new String for every character)
     static String strReverse(String str) {
-        String result = "";
-        for (int i = str.length()-1; i >= 0; i--)
-            result += str.charAt(i);
-        return result;
+        return StringReverser.strReverse(str);
     }
 
 }
\ No newline at end of file
@@ -0,0 +1,212 @@
+package com.pbe;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Streaming mode for stringOp(): applies a StringFunc to every line of a (UTF-8) file
+// The input is never loaded onto the heap as a whole:
+// - The file is memory mapped chunk by chunk, each chunk ending on a line break
+//   (in UTF-8 the byte '\n' never occurs inside a multi byte character, so cutting there is safe).
+// - Chunks are decoded and transformed on a pool of worker threads, one chunk per task.
+// - The calling thread writes the results to the output channel in input order.
+// At most maxInFlight chunks are being processed or waiting to be written at any time, which bounds the memory use
+// to roughly maxInFlight * chunkBytes * (1 + 2 + 1) bytes: the mapped input, the decoded chars, and the encoded output.
+// When all slots are taken, reading waits for the oldest chunk to finish; this backpressure is recorded in the Report.
+//
+// A record is the text between two '\n' characters, without the '\n'. Line breaks are written back after each
+// transformed record, and the last record only gets one when the input had one.
+// The StringFunc can be anything, including a fused StringPipeline, and is called from several threads at once.
+public class StreamingStringOp {
+
+    static final int DEFAULT_CHUNK_BYTES = 4 << 20;
+
+    // Outcome of a run
+    public static final class Report {
+        public final long records;
+        public final long bytesIn;
+        public final long bytesOut;
+        public final long chunks;
+        public final long nanos;
+        // Number of times reading had to wait because maxInFlight chunks were pending, and the total time waited
+        public final long backpressureWaits;
+        public final long backpressureNanos;
+
+        Report(long records, long bytesIn, long bytesOut, long chunks, long nanos,
+               long backpressureWaits, long backpressureNanos) {
+            this.records = records;
+            this.bytesIn = bytesIn;
+            this.bytesOut = bytesOut;
+            this.chunks = chunks;
+            this.nanos = nanos;
+            this.backpressureWaits = backpressureWaits;
+            this.backpressureNanos = backpressureNanos;
+        }
+
+        public double megabytesPerSecond() {
+            return nanos == 0 ? 0 : bytesIn / 1e6 / (nanos / 1e9);
+        }
+
+        public double recordsPerSecond() {
+            return nanos == 0 ? 0 : records / (nanos / 1e9);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Report[records=%d, bytesIn=%d, bytesOut=%d, chunks=%d, time=%.1fms, " +
+                            "%.1f MB/s, %.0f records/s, backpressureWaits=%d, backpressureTime=%.1fms]",
+                    records, bytesIn, bytesOut, chunks, nanos / 1e6, megabytesPerSecond(), recordsPerSecond(),
+                    backpressureWaits, backpressureNanos / 1e6);
+        }
+    }
+
+    // Result of one chunk
+    private static final class Chunk {
+        final ByteBuffer out;
+        final long records;
+
+        Chunk(ByteBuffer out, long records) {
+            this.out = out;
+            this.records = records;
+        }
+    }
+
+    private final StringFunc sf;
+    private final int chunkBytes;
+    private final int threads;
+    private final int maxInFlight;
+
+    public StreamingStringOp(StringFunc sf) {
+        this(sf, DEFAULT_CHUNK_BYTES, Runtime.getRuntime().availableProcessors(),
+                2 * Runtime.getRuntime().availableProcessors());
+    }
+
+    public StreamingStringOp(StringFunc sf, int chunkBytes, int threads, int maxInFlight) {
+        if (chunkBytes <= 0 || threads <= 0 || maxInFlight <= 0)
+            throw new IllegalArgumentException("chunkBytes, threads and maxInFlight must be positive");
+        this.sf = sf;
+        this.chunkBytes = chunkBytes;
+        this.threads = threads;
+        this.maxInFlight = maxInFlight;
+    }
+
+    public Report run(Path in, Path out) throws IOException {
+        try (FileChannel inCh = FileChannel.open(in, StandardOpenOption.READ);
+             FileChannel outCh = FileChannel.open(out, StandardOpenOption.WRITE,
+                     StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            return run(inCh, outCh);
+        }
+    }
+
+    public Report run(FileChannel in, WritableByteChannel out) throws IOException {
+        long start = System.nanoTime();
+        long size = in.size();
+        long records = 0, bytesOut = 0, chunks = 0, waits = 0, waitNanos = 0;
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "stringOp-stream");
+            t.setDaemon(true);
+            return t;
+        });
+        ArrayDeque<Future<Chunk>> pending = new ArrayDeque<>();
+        try {
+            long pos = 0;
+            while (pos < size) {
+                MappedByteBuffer chunk = mapChunk(in, pos, size);
+                pos += chunk.remaining();
+                chunks++;
+                pending.add(pool.submit(() -> transform(chunk)));
+
+                if (pending.size() >= maxInFlight) {
+                    Future<Chunk> oldest = pending.peek();
+                    if (!oldest.isDone()) {
+                        long t0 = System.nanoTime();
+                        oldest.get();
+                        waits++;
+                        waitNanos += System.nanoTime() - t0;
+                    }
+                    Chunk c = pending.poll().get();
+                    records += c.records;
+                    bytesOut += write(out, c.out);
+                }
+            }
+            while (!pending.isEmpty()) {
+                Chunk c = pending.poll().get();
+                records += c.records;
+                bytesOut += write(out, c.out);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while streaming", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException)
+                throw (IOException) cause;
+            if (cause instanceof RuntimeException)
+                throw (RuntimeException) cause;
+            throw new IOException(cause);
+        } finally {
+            for (Future<Chunk> f : pending)
+                f.cancel(true);
+            pool.shutdownNow();
+        }
+        return new Report(records, size, bytesOut, chunks, System.nanoTime() - start, waits, waitNanos);
+    }
+
+    // Map the next chunk, starting at pos and ending right after a '\n' (or at the end of the file)
+    // When a single line is longer than the chunk size, the mapping is grown until it contains the line break.
+    private MappedByteBuffer mapChunk(FileChannel in, long pos, long size) throws IOException {
+        long len = Math.min(chunkBytes, size - pos);
+        while (true) {
+            MappedByteBuffer buf = in.map(FileChannel.MapMode.READ_ONLY, pos, len);
+            if (pos + len == size)
+                return buf;
+            for (int i = (int) len - 1; i >= 0; i--)
+                if (buf.get(i) == '\n')
+                    return buf.slice(0, i + 1);
+            if (len >= Integer.MAX_VALUE - 8)
+                throw new IOException("line starting at byte " + pos + " is longer than " + len + " bytes");
+            len = Math.min(Math.min(len * 2, Integer.MAX_VALUE - 8), size - pos);
+        }
+    }
+
+    // Decode a chunk, apply the function to every record, and encode the result
+    private Chunk transform(ByteBuffer in) throws CharacterCodingException {
+        CharBuffer chars = StandardCharsets.UTF_8.newDecoder().decode(in);
+        int len = chars.remaining();
+        StringBuilder sb = new StringBuilder(len + 16);
+        long records = 0;
+        int from = 0;
+        while (from < len) {
+            int nl = from;
+            while (nl < len && chars.get(nl) != '\n')
+                nl++;
+            sb.append(sf.func(chars.subSequence(from, nl).toString()));
+            records++;
+            if (nl < len)
+                sb.append('\n');
+            from = nl + 1;
+        }
+        return new Chunk(StandardCharsets.UTF_8.newEncoder().encode(CharBuffer.wrap(sb)), records);
+    }
+
+    private static long write(WritableByteChannel out, ByteBuffer buf) throws IOException {
+        long n = buf.remaining();
+        while (buf.hasRemaining())
+            out.write(buf);
+        return n;
+    }
+
+}
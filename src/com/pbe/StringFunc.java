@@ -2,4 +2,14 @@ package com.pbe;
 
 public interface StringFunc {
     String func(String str);
-}
\ No newline at end of file
+
+    // Default methods for composition
+    // When both functions are StringPipeline stages, the result is again a single fused pipeline
+    default StringFunc andThen(StringFunc after) {
+        return StringPipeline.concat(this, after);
+    }
+
+    default StringFunc compose(StringFunc before) {
+        return StringPipeline.concat(before, this);
+    }
+}
@@ -0,0 +1,285 @@
+package com.pbe;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Builder for a chain of StringFunc transforms, run as one fused function
+// Chaining stringOp() calls (uppercase, then remove spaces, then reverse) creates a full intermediate String per step.
+// When the steps are known character level transforms, the pipeline runs them together:
+// - map: replace every char, such as Character::toUpperCase
+// - filter: keep only the chars that pass a test, such as c -> c != ' '
+// - reverse: reverse the whole string (surrogate pairs are kept intact)
+// - trim: remove leading and trailing chars <= ' ', like String.trim()
+// Common shapes have their own stages, which need no call per char: upperCase(), lowerCase(), remove(c) and
+// removeRange(lo, hi), such as removeRange('0', '9') for the digits.
+// A run of such stages copies the input once into a single char buffer, and only the final String is created.
+// Each map or filter stage is then its own tight loop over the buffer, filters compacting it in place;
+// trim only moves the start and end of the buffer, and reverse is done once, in place, at the end
+// (reversing commutes with all the other stages).
+// A loop per stage, rather than all stages per char, keeps the loops simple enough for the JIT to unroll,
+// and the specialized stages avoid the interface call to a CharMapper or CharFilter for every char.
+// Any other StringFunc (such as a lambda) is an opaque stage: it is simply called with the result so far.
+//
+// Example, doing the same as the stringOp() examples in Main:
+// StringFunc f = new StringPipeline().upperCase().remove(' ').reverse().build();
+// NOTE: map() works on single chars, so Character::toUpperCase does not expand characters like String.toUpperCase()
+// does (for example the German sharp s stays one char).
+public class StringPipeline {
+
+    // Functional interface for a char to char mapping
+    public interface CharMapper {
+        char map(char c);
+    }
+
+    // Functional interface for a char test
+    public interface CharFilter {
+        boolean test(char c);
+    }
+
+    // Stage kinds; OPAQUE is any other StringFunc
+    // UPPER, LOWER and REMOVE_RANGE are the specialized shapes of MAP and FILTER
+    enum Kind { MAP, FILTER, UPPER, LOWER, REMOVE_RANGE, REVERSE, TRIM, OPAQUE }
+
+    static final class Stage {
+        final Kind kind;
+        final CharMapper mapper;
+        final CharFilter filter;
+        final StringFunc func;
+        final char lo; // REMOVE_RANGE: chars lo..hi (inclusive) are removed
+        final char hi;
+
+        Stage(Kind kind, CharMapper mapper, CharFilter filter, StringFunc func) {
+            this(kind, mapper, filter, func, (char) 0, (char) 0);
+        }
+
+        Stage(Kind kind, CharMapper mapper, CharFilter filter, StringFunc func, char lo, char hi) {
+            this.kind = kind;
+            this.mapper = mapper;
+            this.filter = filter;
+            this.func = func;
+            this.lo = lo;
+            this.hi = hi;
+        }
+    }
+
+    private final List<Stage> stages = new ArrayList<>();
+
+    public StringPipeline map(CharMapper mapper) {
+        stages.add(new Stage(Kind.MAP, mapper, null, null));
+        return this;
+    }
+
+    public StringPipeline filter(CharFilter filter) {
+        stages.add(new Stage(Kind.FILTER, null, filter, null));
+        return this;
+    }
+
+    // Same as map(Character::toUpperCase)
+    public StringPipeline upperCase() {
+        stages.add(new Stage(Kind.UPPER, null, null, null));
+        return this;
+    }
+
+    // Same as map(Character::toLowerCase)
+    public StringPipeline lowerCase() {
+        stages.add(new Stage(Kind.LOWER, null, null, null));
+        return this;
+    }
+
+    // Same as filter(x -> x != c)
+    public StringPipeline remove(char c) {
+        return removeRange(c, c);
+    }
+
+    // Same as filter(x -> x < lo || x > hi)
+    public StringPipeline removeRange(char lo, char hi) {
+        if (lo > hi)
+            throw new IllegalArgumentException("empty range: " + (int) lo + " > " + (int) hi);
+        stages.add(new Stage(Kind.REMOVE_RANGE, null, null, null, lo, hi));
+        return this;
+    }
+
+    public StringPipeline reverse() {
+        stages.add(new Stage(Kind.REVERSE, null, null, null));
+        return this;
+    }
+
+    public StringPipeline trim() {
+        stages.add(new Stage(Kind.TRIM, null, null, null));
+        return this;
+    }
+
+    // Add any StringFunc; another fused pipeline is inlined, so its stages fuse with the neighbouring ones
+    public StringPipeline then(StringFunc f) {
+        if (f instanceof Fused)
+            stages.addAll(Arrays.asList(((Fused) f).stages));
+        else
+            stages.add(new Stage(Kind.OPAQUE, null, null, f));
+        return this;
+    }
+
+    public StringFunc build() {
+        return new Fused(stages.toArray(new Stage[0]));
+    }
+
+    // f followed by g, fused when possible; used by StringFunc.andThen() and compose()
+    static StringFunc concat(StringFunc f, StringFunc g) {
+        return new StringPipeline().then(f).then(g).build();
+    }
+
+    // The built pipeline
+    // Stages are grouped in segments: a maximal run of char level stages, or a single opaque stage.
+    static final class Fused implements StringFunc {
+        final Stage[] stages;
+        private final Stage[][] segments;
+
+        Fused(Stage[] stages) {
+            this.stages = stages;
+            List<Stage[]> segs = new ArrayList<>();
+            int i = 0;
+            while (i < stages.length) {
+                int j = i;
+                if (stages[i].kind == Kind.OPAQUE) {
+                    j++;
+                } else {
+                    while (j < stages.length && stages[j].kind != Kind.OPAQUE)
+                        j++;
+                }
+                segs.add(Arrays.copyOfRange(stages, i, j));
+                i = j;
+            }
+            this.segments = segs.toArray(new Stage[0][]);
+        }
+
+        public String func(String str) {
+            String s = str;
+            for (Stage[] seg : segments) {
+                if (seg[0].kind == Kind.OPAQUE)
+                    s = seg[0].func.func(s);
+                else
+                    s = runFused(seg, s);
+            }
+            return s;
+        }
+
+        // Number of passes over the data: one per fused segment, plus one per opaque stage
+        int segmentCount() {
+            return segments.length;
+        }
+    }
+
+    // Run a segment of char level stages over one buffer
+    private static String runFused(Stage[] seg, String str) {
+        int end = str.length();
+        char[] buf = new char[end];
+        str.getChars(0, end, buf, 0);
+        int start = 0;
+        boolean reversed = false;
+
+        // Every stage works in place on buf[start, end)
+        for (Stage st : seg) {
+            switch (st.kind) {
+                case REVERSE:
+                    reversed = !reversed;
+                    break;
+                case TRIM:
+                    while (start < end && buf[start] <= ' ')
+                        start++;
+                    while (end > start && buf[end - 1] <= ' ')
+                        end--;
+                    break;
+                case UPPER:
+                    upperCase(buf, start, end);
+                    break;
+                case LOWER:
+                    lowerCase(buf, start, end);
+                    break;
+                case REMOVE_RANGE:
+                    end = removeRange(buf, start, end, st.lo, st.hi);
+                    break;
+                case MAP:
+                    map(buf, start, end, st.mapper);
+                    break;
+                case FILTER:
+                    end = filter(buf, start, end, st.filter);
+                    break;
+                default:
+                    throw new IllegalStateException("not a char level stage: " + st.kind);
+            }
+        }
+
+        if (reversed)
+            reverseInPlace(buf, start, end);
+        return new String(buf, start, end - start);
+    }
+
+    // The stage loops; filters compact buf[start, end) to the left and return the new end
+
+    private static void upperCase(char[] buf, int start, int end) {
+        for (int i = start; i < end; i++) {
+            char c = buf[i];
+            // ASCII without a call; everything else as Character.toUpperCase(char)
+            if (c >= 'a' && c <= 'z')
+                buf[i] = (char) (c - ('a' - 'A'));
+            else if (c >= 128)
+                buf[i] = Character.toUpperCase(c);
+        }
+    }
+
+    private static void lowerCase(char[] buf, int start, int end) {
+        for (int i = start; i < end; i++) {
+            char c = buf[i];
+            if (c >= 'A' && c <= 'Z')
+                buf[i] = (char) (c + ('a' - 'A'));
+            else if (c >= 128)
+                buf[i] = Character.toLowerCase(c);
+        }
+    }
+
+    private static int removeRange(char[] buf, int start, int end, char lo, char hi) {
+        // lo <= c <= hi as one unsigned compare, like PredicateBatch.range(); flipping the sign bit makes it signed
+        int span = (hi - lo) ^ Integer.MIN_VALUE;
+        int w = start;
+        for (int r = start; r < end; r++) {
+            char c = buf[r];
+            buf[w] = c;
+            // Always written, only kept (w advances) when c is outside the range: no branch on the data
+            w += ((c - lo) ^ Integer.MIN_VALUE) > span ? 1 : 0;
+        }
+        return w;
+    }
+
+    private static void map(char[] buf, int start, int end, CharMapper mapper) {
+        for (int i = start; i < end; i++)
+            buf[i] = mapper.map(buf[i]);
+    }
+
+    private static int filter(char[] buf, int start, int end, CharFilter filter) {
+        int w = start;
+        for (int r = start; r < end; r++) {
+            char c = buf[r];
+            if (filter.test(c))
+                buf[w++] = c;
+        }
+        return w;
+    }
+
+    // Reverse chars in place, then swap back surrogate pairs that ended up as (low, high)
+    static void reverseInPlace(char[] buf, int start, int end) {
+        for (int l = start, r = end - 1; l < r; l++, r--) {
+            char t = buf[l];
+            buf[l] = buf[r];
+            buf[r] = t;
+        }
+        for (int k = start; k < end - 1; k++) {
+            if (Character.isLowSurrogate(buf[k]) && Character.isHighSurrogate(buf[k + 1])) {
+                char t = buf[k];
+                buf[k] = buf[k + 1];
+                buf[k + 1] = t;
+                k++;
+            }
+        }
+    }
+
+}
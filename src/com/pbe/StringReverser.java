@@ -0,0 +1,129 @@
+package com.pbe;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// String reversal engine
+// Reverses a string in a single pass, writing each character directly to its mirrored position in a char buffer.
+// The buffer is kept between calls and only grows when a longer string comes along,
+// so reversing many strings does not allocate anything apart from the resulting String objects.
+// Surrogate pairs (characters outside the Basic Multilingual Plane, such as most emoji) are kept in order,
+// so they are not split into two invalid halves.
+// NOTE: an instance is not thread safe because of the shared buffer.
+// Use one instance per thread, or the static strReverse() which uses a per thread instance.
+public class StringReverser {
+
+    // Buffers larger than this are not retained after a call, to avoid holding on to memory
+    // after reversing a single multi megabyte payload
+    static final int MAX_RETAINED_CAPACITY = 1 << 20;
+
+    // An anonymous subclass rather than ThreadLocal.withInitial(StringReverser::new):
+    // strReverse() is on the startup path of FunctionRegistry, which avoids lambda bootstrapping
+    private static final ThreadLocal<StringReverser> PER_THREAD = new ThreadLocal<StringReverser>() {
+        @Override
+        protected StringReverser initialValue() {
+            return new StringReverser();
+        }
+    };
+
+    private char[] buffer = new char[64];
+
+    // Static method strReverse() compatible with StringFunc, so StringReverser::strReverse can be passed to stringOp()
+    static String strReverse(String str) {
+        return PER_THREAD.get().reverse(str);
+    }
+
+    // Reverse a single character sequence
+    public String reverse(CharSequence str) {
+        int len = str.length();
+        char[] buf = ensureCapacity(len);
+        fill(str, len, buf);
+        String result = new String(buf, 0, len);
+        release(buf.length);
+        return result;
+    }
+
+    // Reverse all strings of an array, returning the results in a new array
+    public String[] reverseAll(String[] strs) {
+        String[] out = new String[strs.length];
+        reverseAll(strs, out);
+        return out;
+    }
+
+    // Reverse all strings of an array into a given output array
+    // The output array may be the same as the input array, reversing in place
+    public void reverseAll(CharSequence[] strs, String[] out) {
+        if (out.length < strs.length)
+            throw new IllegalArgumentException("output array too small: " + out.length + " < " + strs.length);
+        char[] buf = ensureCapacity(maxLength(strs));
+        for (int i = 0; i < strs.length; i++) {
+            CharSequence str = strs[i];
+            if (str == null) {
+                out[i] = null;
+                continue;
+            }
+            int len = str.length();
+            fill(str, len, buf);
+            out[i] = new String(buf, 0, len);
+        }
+        release(buf.length);
+    }
+
+    // Reverse all character sequences of a list, returning the results in a new list
+    public List<String> reverseAll(List<? extends CharSequence> strs) {
+        List<String> out = new ArrayList<>(strs.size());
+        int max = 0;
+        for (CharSequence str : strs)
+            if (str != null && str.length() > max) max = str.length();
+        char[] buf = ensureCapacity(max);
+        for (CharSequence str : strs) {
+            if (str == null) {
+                out.add(null);
+                continue;
+            }
+            int len = str.length();
+            fill(str, len, buf);
+            out.add(new String(buf, 0, len));
+        }
+        release(buf.length);
+        return out;
+    }
+
+    // Single pass: character i goes to position len-1-i,
+    // except for a surrogate pair which is moved as a whole, keeping the high surrogate in front
+    private static void fill(CharSequence str, int len, char[] buf) {
+        int last = len - 1;
+        for (int i = 0; i < len; i++) {
+            char c = str.charAt(i);
+            if (Character.isHighSurrogate(c) && i < last) {
+                char next = str.charAt(i + 1);
+                if (Character.isLowSurrogate(next)) {
+                    buf[last - i - 1] = c;
+                    buf[last - i] = next;
+                    i++;
+                    continue;
+                }
+            }
+            buf[last - i] = c;
+        }
+    }
+
+    private static int maxLength(CharSequence[] strs) {
+        int max = 0;
+        for (CharSequence str : strs)
+            if (str != null && str.length() > max) max = str.length();
+        return max;
+    }
+
+    private char[] ensureCapacity(int len) {
+        if (buffer.length < len)
+            buffer = new char[Math.max(len, buffer.length * 2)];
+        return buffer;
+    }
+
+    private void release(int used) {
+        if (used > MAX_RETAINED_CAPACITY)
+            buffer = new char[64];
+    }
+
+}
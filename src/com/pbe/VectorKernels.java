@@ -0,0 +1,62 @@
+package com.pbe;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+// Vector API versions of the PredicateBatch kernels
+// A compare of a whole vector of ints gives a VectorMask, and VectorMask.toLong() packs it into bits,
+// which is exactly the layout of a BitMask word: one compare and one shift per vector instead of per value.
+// Only compare based shapes are here (range, and modulo by a power of two, which is an AND);
+// there is no SIMD integer division, so the general modulo and isFactor kernels stay scalar.
+//
+// This class refers to jdk.incubator.vector and may only be used when that module is present,
+// which PredicateBatch checks before calling it. The kernels fill complete words of 64 values
+// and return the index from which the scalar kernel has to continue.
+final class VectorKernels {
+
+    // The widest int vector of this CPU; its lane count (4, 8 or 16) divides 64
+    private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_PREFERRED;
+
+    private VectorKernels() {
+    }
+
+    static int rangeKernel(int[] v, int lo, int hi, long[] words) {
+        // Same unsigned compare as the scalar kernel: (n - lo) ^ MIN_VALUE <= (hi - lo) ^ MIN_VALUE
+        int span = (hi - lo) ^ Integer.MIN_VALUE;
+        int lanes = SPECIES.length();
+        int full = v.length & ~63;
+        for (int base = 0; base < full; base += 64) {
+            long word = 0;
+            for (int j = 0; j < 64; j += lanes) {
+                VectorMask<Integer> m = IntVector.fromArray(SPECIES, v, base + j)
+                        .sub(lo)
+                        .lanewise(VectorOperators.XOR, Integer.MIN_VALUE)
+                        .compare(VectorOperators.LE, span);
+                word |= m.toLong() << j;
+            }
+            words[base >>> 6] = word;
+        }
+        return full;
+    }
+
+    // n % divisor == 0 for a power of two divisor: (n & (divisor - 1)) == 0
+    static int powerOfTwoKernel(int[] v, int divisor, long[] words) {
+        int m = divisor - 1;
+        int lanes = SPECIES.length();
+        int full = v.length & ~63;
+        for (int base = 0; base < full; base += 64) {
+            long word = 0;
+            for (int j = 0; j < 64; j += lanes) {
+                VectorMask<Integer> mask = IntVector.fromArray(SPECIES, v, base + j)
+                        .and(m)
+                        .compare(VectorOperators.EQ, 0);
+                word |= mask.toLong() << j;
+            }
+            words[base >>> 6] = word;
+        }
+        return full;
+    }
+
+}